@@ -0,0 +1,81 @@
+package net.fornwall.eclipsecoder.actions;
+
+import java.awt.AWTEvent;
+import java.awt.event.AWTEventListener;
+import java.awt.event.WindowEvent;
+
+import javax.swing.JFrame;
+
+import net.fornwall.eclipsecoder.bench.Measurement;
+
+/**
+ * Times the latency {@link MainFrameHook} adds to each window event of the JVM while waiting for the main frame of
+ * the contest applet, against the global listeners comparing class names used before it was introduced.
+ *
+ * Events are passed to the listeners directly, so no display is needed. Run as a Java application with the plug-in
+ * and its required plug-ins on the class path.
+ */
+public class MainFrameHookBenchmark {
+
+	/** Stands in for the main frame class of the applet, which is never the source of the events. */
+	private static class MainFrame {
+		// no members needed
+	}
+
+	/** Stands in for a workbench window as the source of the events. */
+	private static class WorkbenchWindow {
+		// no members needed
+	}
+
+	private static final String MAIN_FRAME_CLASS_NAME = "com.topcoder.client.contestApplet.frames.MainFrame";
+
+	private static final int OPERATIONS = 1000000;
+
+	private static AWTEvent windowEvent(int id) {
+		return new AWTEvent(new WorkbenchWindow(), id) {
+			private static final long serialVersionUID = 1L;
+		};
+	}
+
+	public static void main(String[] args) throws Exception {
+		final AWTEventListener hook = new MainFrameHook(MainFrame.class) {
+			@Override
+			void activated(JFrame mainFrame) {
+				throw new IllegalStateException("Main frame not expected");
+			}
+		};
+		final AWTEventListener nameListener = new AWTEventListener() {
+			public void eventDispatched(AWTEvent event) {
+				if (!event.getSource().getClass().getName().equals(MAIN_FRAME_CLASS_NAME)) {
+					return;
+				}
+				if (event.getID() != WindowEvent.WINDOW_ACTIVATED) {
+					return;
+				}
+				throw new IllegalStateException("Main frame not expected");
+			}
+		};
+
+		for (int id : new int[] { WindowEvent.WINDOW_ACTIVATED, WindowEvent.WINDOW_DEACTIVATED }) {
+			System.out.println((id == WindowEvent.WINDOW_ACTIVATED ? "Activation" : "Deactivation")
+					+ " of another window:");
+			Measurement.printAll(windowEvent(id), OPERATIONS, new Measurement<AWTEvent>("MainFrameHook") {
+				@Override
+				protected Object run(AWTEvent event) {
+					hook.eventDispatched(event);
+					return event;
+				}
+			}, new Measurement<AWTEvent>("listener comparing class names") {
+				@Override
+				protected Object run(AWTEvent event) {
+					nameListener.eventDispatched(event);
+					return event;
+				}
+			});
+		}
+	}
+
+	private MainFrameHookBenchmark() {
+		// never called - only static methods used
+	}
+}
@@ -0,0 +1,62 @@
+package net.fornwall.eclipsecoder.bench;
+
+/**
+ * A timed operation of a benchmark, run on an input prepared by the benchmark.
+ *
+ * The operation is repeated a number of times per round for a number of rounds, where the earlier rounds warm up the
+ * JIT compiler, and the time per operation of the last round is printed. The results of the operations are stored in
+ * a volatile field so that the work is not optimized away.
+ *
+ * @param <T>
+ *            the type of the input
+ */
+public abstract class Measurement<T> {
+
+	private static final int ROUNDS = 5;
+
+	private static volatile Object sink;
+
+	/**
+	 * Time the measurements one after another on the same input and print the time per operation of each.
+	 *
+	 * @param input
+	 *            The input passed to each operation.
+	 * @param operations
+	 *            The number of operations per round.
+	 */
+	@SafeVarargs
+	public static <T> void printAll(T input, int operations, Measurement<T>... measurements) throws Exception {
+		for (Measurement<T> measurement : measurements) {
+			System.out.printf("  %-45s %12.1f ns/op%n", measurement.description,
+					measurement.nanosPerOperation(input, operations));
+		}
+	}
+
+	private final String description;
+
+	public Measurement(String description) {
+		this.description = description;
+	}
+
+	/**
+	 * @return the time per operation in nanoseconds in the last round
+	 */
+	public double nanosPerOperation(T input, int operations) throws Exception {
+		long nanos = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < operations; i++) {
+				sink = run(input);
+			}
+			nanos = System.nanoTime() - start;
+		}
+		return (double) nanos / operations;
+	}
+
+	/**
+	 * Perform the operation once.
+	 *
+	 * @return a value depending on the work done
+	 */
+	protected abstract Object run(T input) throws Exception;
+}
@@ -0,0 +1,62 @@
+package net.fornwall.eclipsecoder.stats;
+
+import net.fornwall.eclipsecoder.bench.Measurement;
+
+/**
+ * Times {@link ValueParser} against parsing by splitting the text into parts, as done before it was introduced, on
+ * large array values such as those of TopCoder examples.
+ *
+ * Run as a Java application with the plug-in classes on the class path.
+ */
+public class ValueParserBenchmark {
+
+	private static final int ARRAY_LENGTH = 50;
+
+	private static final int OPERATIONS = 20000;
+
+	private static String arrayText(int length) {
+		StringBuilder builder = new StringBuilder("{");
+		for (int i = 0; i < length; i++) {
+			if (i != 0) {
+				builder.append(", ");
+			}
+			builder.append(i * 7919 % 1000003);
+		}
+		return builder.append('}').toString();
+	}
+
+	public static void main(String[] args) throws Exception {
+		for (int length : new int[] { ARRAY_LENGTH, ARRAY_LENGTH * 100 }) {
+			System.out.println("Array of " + length + " elements:");
+			measure(arrayText(length), OPERATIONS * ARRAY_LENGTH / length + 1);
+		}
+	}
+
+	private static void measure(String text, int operations) throws Exception {
+		Measurement.printAll(text, operations, new Measurement<String>("ValueParser int[]") {
+			@Override
+			protected Object run(String text) {
+				return ProblemStatement.parseCompactType(Integer[].class, text);
+			}
+		}, new Measurement<String>("ValueParser Integer[]") {
+			@Override
+			protected Object run(String text) {
+				return ProblemStatement.parseType(Integer[].class, text);
+			}
+		}, new Measurement<String>("trim and split Integer[]") {
+			@Override
+			protected Object run(String text) {
+				String[] parts = text.trim().substring(1, text.length() - 1).split(",");
+				Integer[] result = new Integer[parts.length];
+				for (int i = 0; i < parts.length; i++) {
+					result[i] = Integer.valueOf(parts[i].trim());
+				}
+				return result;
+			}
+		});
+	}
+
+	private ValueParserBenchmark() {
+		// never called - only static methods used
+	}
+}
@@ -0,0 +1,79 @@
+package net.fornwall.eclipsecoder.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import net.fornwall.eclipsecoder.bench.Measurement;
+
+/**
+ * Times the cached members of {@link ReflectUtil} against plain reflection looking up the member on each access, as
+ * the contest applet is accessed.
+ *
+ * Run as a Java application with the plug-in classes on the class path.
+ */
+public class ReflectUtilBenchmark {
+
+	static class Target {
+		private static String staticName = "static";
+
+		private static String staticValue(String s) {
+			return s;
+		}
+
+		private String name = "instance";
+
+		private String value(String s) {
+			return s;
+		}
+	}
+
+	private static final int OPERATIONS = 1000000;
+
+	public static void main(String[] args) throws Exception {
+		Measurement.printAll(new Target(), OPERATIONS, new Measurement<Target>("ReflectUtil.getField") {
+			@Override
+			protected Object run(Target target) {
+				return ReflectUtil.getField(target, "name");
+			}
+		}, new Measurement<Target>("ReflectUtil.getField (static)") {
+			@Override
+			protected Object run(Target target) {
+				return ReflectUtil.getField(target, "staticName");
+			}
+		}, new Measurement<Target>("ReflectUtil.setInstanceField") {
+			@Override
+			protected Object run(Target target) {
+				ReflectUtil.setInstanceField(target, "name", "instance");
+				return null;
+			}
+		}, new Measurement<Target>("ReflectUtil.invokeInstanceMethod") {
+			@Override
+			protected Object run(Target target) {
+				return ReflectUtil.invokeInstanceMethod(target, "value", "x");
+			}
+		}, new Measurement<Target>("ReflectUtil.invokeInstanceMethod (static)") {
+			@Override
+			protected Object run(Target target) {
+				return ReflectUtil.invokeInstanceMethod(target, "staticValue", "x");
+			}
+		}, new Measurement<Target>("Field.get with lookup") {
+			@Override
+			protected Object run(Target target) throws Exception {
+				Field field = target.getClass().getDeclaredField("name");
+				field.setAccessible(true);
+				return field.get(target);
+			}
+		}, new Measurement<Target>("Method.invoke with lookup") {
+			@Override
+			protected Object run(Target target) throws Exception {
+				Method method = target.getClass().getDeclaredMethod("value", String.class);
+				method.setAccessible(true);
+				return method.invoke(target, "x");
+			}
+		});
+	}
+
+	private ReflectUtilBenchmark() {
+		// never called - only static methods used
+	}
+}
@@ -0,0 +1,74 @@
+package net.fornwall.eclipsecoder.util;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.fornwall.eclipsecoder.bench.Measurement;
+
+/**
+ * Times {@link Utilities#getMatch(String, String, int)} with its cached patterns against compiling the pattern on each
+ * call, and {@link Utilities#getMatches(String, String, int...)} against one getMatch call per group, on a solution
+ * source as searched by the language plug-ins.
+ *
+ * Run as a Java application with the plug-in and its required plug-ins on the class path.
+ */
+public class UtilitiesBenchmark {
+
+	private static final String CLASS_NAME_REGEXP = "public\\s+class\\s+(\\w+)";
+
+	private static final String CLASS_AND_METHOD_REGEXP = "(?s)public\\s+class\\s+(\\w+).*?"
+			+ "public\\s+\\w+(\\[\\])*\\s+(\\w+)\\s*\\(";
+
+	private static final String METHOD_NAME_REGEXP = "public\\s+\\w+(\\[\\])*\\s+(\\w+)\\s*\\(";
+
+	private static final int OPERATIONS = 100000;
+
+	private static String solutionSource() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("import java.util.*;\n\n");
+		for (int i = 0; i < 20; i++) {
+			builder.append("// helper notes line ").append(i).append('\n');
+		}
+		builder.append("public class BinaryCode {\n\n");
+		builder.append("\tpublic String[] decode(String message) {\n\t\treturn new String[0];\n\t}\n");
+		for (int i = 0; i < 10; i++) {
+			builder.append("\n\tprivate int helper").append(i).append("(int x) {\n\t\treturn x * ").append(i)
+					.append(";\n\t}\n");
+		}
+		return builder.append("}\n").toString();
+	}
+
+	public static void main(String[] args) throws Exception {
+		String source = solutionSource();
+		if (!"BinaryCode".equals(Utilities.getMatches(source, CLASS_AND_METHOD_REGEXP, 1, 3)[0])) {
+			throw new IllegalStateException("Class and method not matched");
+		}
+		Measurement.printAll(source, OPERATIONS, new Measurement<String>("getMatch (cached pattern)") {
+			@Override
+			protected Object run(String source) {
+				return Utilities.getMatch(source, CLASS_NAME_REGEXP, 1);
+			}
+		}, new Measurement<String>("Pattern.compile on each call") {
+			@Override
+			protected Object run(String source) {
+				Matcher matcher = Pattern.compile(CLASS_NAME_REGEXP, Pattern.CASE_INSENSITIVE).matcher(source);
+				return matcher.find() ? matcher.group(1) : null;
+			}
+		}, new Measurement<String>("getMatch for class and method") {
+			@Override
+			protected Object run(String source) {
+				return Utilities.getMatch(source, CLASS_NAME_REGEXP, 1)
+						+ Utilities.getMatch(source, METHOD_NAME_REGEXP, 2);
+			}
+		}, new Measurement<String>("getMatches for class and method") {
+			@Override
+			protected Object run(String source) {
+				return Utilities.getMatches(source, CLASS_AND_METHOD_REGEXP, 1, 3);
+			}
+		});
+	}
+
+	private UtilitiesBenchmark() {
+		// never called - only static methods used
+	}
+}
@@ -0,0 +1,194 @@
+package net.fornwall.eclipsecoder.actions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * The parts of the JNLP descriptor of the contest applet needed to launch it: the jars to put on the class path and
+ * the main class.
+ *
+ * The descriptor is persisted as a properties file so that the applet can be launched without fetching the JNLP
+ * file, which is then only refreshed when the saved copy is older than a time-to-live.
+ */
+class AppletDescriptor {
+
+	private static final String FETCHED_KEY = "fetched";
+
+	private static final String JAR_KEY_PREFIX = "jar.";
+
+	private static final String MAIN_CLASS_KEY = "mainClass";
+
+	private static final int TIMEOUT_MILLIS = 10000;
+
+	/**
+	 * Fetch and parse a JNLP file.
+	 */
+	static AppletDescriptor fetch(URL jnlpUrl) throws IOException {
+		URLConnection connection = jnlpUrl.openConnection();
+		connection.setConnectTimeout(TIMEOUT_MILLIS);
+		connection.setReadTimeout(TIMEOUT_MILLIS);
+		try (InputStream in = connection.getInputStream()) {
+			return parse(jnlpUrl, in);
+		}
+	}
+
+	/**
+	 * Load a descriptor saved with {@link #save(File)}.
+	 *
+	 * @return the descriptor, or null if the file does not exist or cannot be read
+	 */
+	static AppletDescriptor load(File file) {
+		if (!file.isFile()) {
+			return null;
+		}
+		Properties properties = new Properties();
+		try (InputStream in = Files.newInputStream(file.toPath())) {
+			properties.load(in);
+			List<URL> jars = new ArrayList<URL>();
+			String jar;
+			while ((jar = properties.getProperty(JAR_KEY_PREFIX + jars.size())) != null) {
+				jars.add(new URL(jar));
+			}
+			String mainClass = properties.getProperty(MAIN_CLASS_KEY);
+			if (jars.isEmpty() || mainClass == null) {
+				return null;
+			}
+			return new AppletDescriptor(jars, mainClass, Long.parseLong(properties.getProperty(FETCHED_KEY, "0")));
+		} catch (IOException e) {
+			return null;
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Parse a JNLP file, reading only the <code>jnlp</code>, <code>jar</code> and <code>application-desc</code>
+	 * elements.
+	 *
+	 * @param jnlpUrl
+	 *            The URL the JNLP file was fetched from, which relative jar references are resolved against if the
+	 *            file does not specify a code base.
+	 */
+	static AppletDescriptor parse(URL jnlpUrl, InputStream in) throws IOException {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+
+		URL codeBase = jnlpUrl;
+		List<URL> jars = new ArrayList<URL>();
+		String mainClass = null;
+		try {
+			XMLStreamReader reader = factory.createXMLStreamReader(in);
+			try {
+				while (reader.hasNext()) {
+					if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+						continue;
+					}
+					String element = reader.getLocalName();
+					if (element.equals("jnlp")) {
+						String codeBaseAttribute = reader.getAttributeValue(null, "codebase");
+						if (codeBaseAttribute != null) {
+							codeBase = new URL(jnlpUrl, codeBaseAttribute.endsWith("/") ? codeBaseAttribute
+									: codeBaseAttribute + "/");
+						}
+					} else if (element.equals("jar")) {
+						String href = reader.getAttributeValue(null, "href");
+						if (href != null) {
+							jars.add(new URL(codeBase, href));
+						}
+					} else if (element.equals("application-desc")) {
+						mainClass = reader.getAttributeValue(null, "main-class");
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException("Cannot parse " + jnlpUrl + ": " + e.getMessage(), e);
+		} catch (MalformedURLException e) {
+			throw new IOException("Invalid jar reference in " + jnlpUrl + ": " + e.getMessage(), e);
+		}
+
+		if (jars.isEmpty()) {
+			throw new IOException("No jars listed in " + jnlpUrl);
+		} else if (mainClass == null) {
+			throw new IOException("No main class specified in " + jnlpUrl);
+		}
+		return new AppletDescriptor(jars, mainClass, System.currentTimeMillis());
+	}
+
+	private final long fetched;
+
+	private final List<URL> jars;
+
+	private final String mainClass;
+
+	private AppletDescriptor(List<URL> jars, String mainClass, long fetched) {
+		this.jars = Collections.unmodifiableList(jars);
+		this.mainClass = mainClass;
+		this.fetched = fetched;
+	}
+
+	/**
+	 * @return the time in milliseconds the descriptor was fetched from the server
+	 */
+	long getFetched() {
+		return fetched;
+	}
+
+	List<URL> getJars() {
+		return jars;
+	}
+
+	String getMainClass() {
+		return mainClass;
+	}
+
+	/**
+	 * @return true if the descriptor was fetched longer ago than the given time-to-live
+	 */
+	boolean isStale(long timeToLive) {
+		long age = System.currentTimeMillis() - fetched;
+		return age < 0 || age >= timeToLive;
+	}
+
+	/**
+	 * Save the descriptor, replacing the file atomically if possible.
+	 */
+	void save(File file) throws IOException {
+		Properties properties = new Properties();
+		for (int i = 0; i < jars.size(); i++) {
+			properties.setProperty(JAR_KEY_PREFIX + i, jars.get(i).toString());
+		}
+		properties.setProperty(MAIN_CLASS_KEY, mainClass);
+		properties.setProperty(FETCHED_KEY, Long.toString(fetched));
+
+		File tmpFile = new File(file.getPath() + ".tmp");
+		try (OutputStream out = Files.newOutputStream(tmpFile.toPath())) {
+			properties.store(out, "EclipseCoder contest applet descriptor");
+		}
+		try {
+			Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
@@ -0,0 +1,342 @@
+package net.fornwall.eclipsecoder.actions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Content-addressed cache of the applet jars.
+ *
+ * Jars are stored in a directory under the plug-in state location named by the SHA-256 digest of their content. A
+ * manifest maps each jar URL to the digest of its cached content together with the <code>ETag</code> and
+ * <code>Last-Modified</code> validators returned by the server and the time the entry was last validated. Entries
+ * validated less than a time-to-live ago are used without contacting the server, older entries are revalidated with
+ * conditional requests. When revalidation fails, as when offline, the cached jars are used as they are.
+ *
+ * Content replaced by a newer download is kept until {@link #deleteUnreferencedJars()} is called, as a running applet
+ * may still load classes from it.
+ */
+class AppletJarCache {
+
+	private static final String CHECKED_SUFFIX = ".checked";
+
+	private static final String ETAG_SUFFIX = ".etag";
+
+	private static final String LAST_MODIFIED_SUFFIX = ".lastModified";
+
+	private static final String MANIFEST_FILE = "manifest.properties";
+
+	private static final int MAX_PARALLEL_REVALIDATIONS = 4;
+
+	private static final String SHA256_SUFFIX = ".sha256";
+
+	private static final int TIMEOUT_MILLIS = 10000;
+
+	private static String digest(File file) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+			while (in.read(buffer) != -1) {
+				buffer.flip();
+				digest.update(buffer);
+				buffer.clear();
+			}
+		}
+		StringBuilder result = new StringBuilder(64);
+		for (byte b : digest.digest()) {
+			result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return result.toString();
+	}
+
+	private final File directory;
+
+	private final Properties manifest = new Properties();
+
+	private final long timeToLive;
+
+	/**
+	 * @param directory
+	 *            The directory holding the cached jars and the manifest.
+	 * @param timeToLive
+	 *            The time in milliseconds after validation during which a cached jar is used without revalidation.
+	 */
+	AppletJarCache(File directory, long timeToLive) {
+		this.directory = directory;
+		this.timeToLive = timeToLive;
+		directory.mkdirs();
+		File manifestFile = new File(directory, MANIFEST_FILE);
+		if (manifestFile.isFile()) {
+			try (InputStream in = Files.newInputStream(manifestFile.toPath())) {
+				manifest.load(in);
+			} catch (IOException e) {
+				// an unreadable manifest just means that everything is downloaded again
+				manifest.clear();
+			}
+		}
+	}
+
+	/**
+	 * Delete cached content no longer referenced by any URL, which must no longer be used by any class loader.
+	 */
+	synchronized void deleteUnreferencedJars() {
+		Set<String> referenced = new HashSet<String>();
+		for (String key : manifest.stringPropertyNames()) {
+			if (key.endsWith(SHA256_SUFFIX)) {
+				referenced.add(manifest.getProperty(key) + ".jar");
+			}
+		}
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			if (file.getName().endsWith(".jar") && !referenced.contains(file.getName())) {
+				// retried next time if still locked
+				file.delete();
+			}
+		}
+	}
+
+	/**
+	 * Get the cached content of a jar.
+	 *
+	 * @return The cached jar, or null if the jar has not been cached.
+	 */
+	synchronized File getJar(URL jarUrl) {
+		String sha256 = manifest.getProperty(jarUrl + SHA256_SUFFIX);
+		if (sha256 == null) {
+			return null;
+		}
+		File jar = new File(directory, sha256 + ".jar");
+		return jar.isFile() ? jar : null;
+	}
+
+	/**
+	 * Get the file to download a jar to before it is added to the cache with {@link #store(URL, File, String, long)}.
+	 * The name only depends on the URL so that a partial download can be resumed.
+	 */
+	File getDownloadFile(URL jarUrl) {
+		return new File(directory, Integer.toHexString(jarUrl.toString().hashCode()) + ".download");
+	}
+
+	/**
+	 * Check which jars need to be downloaded. Jars not in the cache are always returned, while cached jars validated
+	 * longer ago than the time-to-live are revalidated concurrently with conditional requests.
+	 *
+	 * @return Map from the URL of each jar to download to the file to download it to.
+	 */
+	Map<URL, File> getStaleJars(List<URL> jarUrls) {
+		Map<URL, File> result = new LinkedHashMap<URL, File>();
+		final List<URL> toRevalidate = new ArrayList<URL>();
+		long now = System.currentTimeMillis();
+		synchronized (this) {
+			for (URL jarUrl : jarUrls) {
+				if (getJar(jarUrl) == null) {
+					result.put(jarUrl, getDownloadFile(jarUrl));
+				} else {
+					String checked = manifest.getProperty(jarUrl + CHECKED_SUFFIX, "0");
+					long age = now - Long.parseLong(checked);
+					if (age < 0 || age >= timeToLive) {
+						toRevalidate.add(jarUrl);
+					}
+				}
+			}
+		}
+		if (toRevalidate.isEmpty()) {
+			return result;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(MAX_PARALLEL_REVALIDATIONS,
+				toRevalidate.size()), new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "EclipseCoder applet revalidation");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			List<Future<Boolean>> checks = new ArrayList<Future<Boolean>>();
+			for (final URL jarUrl : toRevalidate) {
+				checks.add(executor.submit(new Callable<Boolean>() {
+					public Boolean call() throws IOException {
+						return Boolean.valueOf(isModified(jarUrl));
+					}
+				}));
+			}
+			for (int i = 0; i < checks.size(); i++) {
+				URL jarUrl = toRevalidate.get(i);
+				try {
+					if (checks.get(i).get().booleanValue()) {
+						result.put(jarUrl, getDownloadFile(jarUrl));
+					}
+				} catch (ExecutionException e) {
+					// server not reachable - keep using the cached jar and try again next time
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+		}
+		saveManifest();
+		return result;
+	}
+
+	/**
+	 * Send a conditional request for a cached jar, marking it as validated if the server reports it as unchanged.
+	 */
+	private boolean isModified(URL jarUrl) throws IOException {
+		String etag;
+		String lastModified;
+		synchronized (this) {
+			etag = manifest.getProperty(jarUrl + ETAG_SUFFIX);
+			lastModified = manifest.getProperty(jarUrl + LAST_MODIFIED_SUFFIX);
+		}
+
+		URLConnection connection = jarUrl.openConnection();
+		if (!(connection instanceof HttpURLConnection)) {
+			return false;
+		}
+		HttpURLConnection http = (HttpURLConnection) connection;
+		http.setConnectTimeout(TIMEOUT_MILLIS);
+		http.setReadTimeout(TIMEOUT_MILLIS);
+		if (etag != null) {
+			http.setRequestProperty("If-None-Match", etag);
+		}
+		if (lastModified != null) {
+			http.setIfModifiedSince(Long.parseLong(lastModified));
+		}
+		try {
+			int responseCode = http.getResponseCode();
+			if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+				markValidated(jarUrl);
+				return false;
+			} else if (responseCode != HttpURLConnection.HTTP_OK) {
+				throw new IOException("Server returned HTTP " + responseCode + " for " + jarUrl);
+			} else if (etag == null && lastModified == null) {
+				// no validators to send - fall back to comparing the modification time
+				long remoteModified = http.getLastModified();
+				if (remoteModified > 0 && remoteModified <= getJar(jarUrl).lastModified()) {
+					markValidated(jarUrl);
+					return false;
+				}
+			}
+			return true;
+		} finally {
+			http.disconnect();
+		}
+	}
+
+	private synchronized void markValidated(URL jarUrl) {
+		manifest.setProperty(jarUrl + CHECKED_SUFFIX, Long.toString(System.currentTimeMillis()));
+	}
+
+	/**
+	 * Forget a cached jar and delete its content.
+	 *
+	 * @return false if the cached content could not be deleted
+	 */
+	synchronized boolean remove(URL jarUrl) {
+		File jar = getJar(jarUrl);
+		manifest.remove(jarUrl + SHA256_SUFFIX);
+		manifest.remove(jarUrl + ETAG_SUFFIX);
+		manifest.remove(jarUrl + LAST_MODIFIED_SUFFIX);
+		manifest.remove(jarUrl + CHECKED_SUFFIX);
+		saveManifest();
+		return jar == null || jar.delete() || !jar.exists();
+	}
+
+	/**
+	 * Save the manifest, ignoring failures as the cache only loses validation information if it cannot be saved.
+	 */
+	private synchronized void saveManifest() {
+		File manifestFile = new File(directory, MANIFEST_FILE);
+		File tmpFile = new File(directory, MANIFEST_FILE + ".tmp");
+		try {
+			try (OutputStream out = Files.newOutputStream(tmpFile.toPath())) {
+				manifest.store(out, "EclipseCoder applet jar cache");
+			}
+			try {
+				Files.move(tmpFile.toPath(), manifestFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+						StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmpFile.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			tmpFile.delete();
+		}
+	}
+
+	/**
+	 * Add a downloaded jar to the cache, replacing any earlier content cached for the URL. The earlier content is not
+	 * deleted until {@link #deleteUnreferencedJars()} is called.
+	 *
+	 * @param jarUrl
+	 *            The URL the jar was downloaded from.
+	 * @param downloaded
+	 *            The downloaded file, which is moved into the cache.
+	 * @param etag
+	 *            The <code>ETag</code> returned by the server, or null.
+	 * @param lastModified
+	 *            The <code>Last-Modified</code> time returned by the server, or 0 if it did not return one.
+	 */
+	synchronized void store(URL jarUrl, File downloaded, String etag, long lastModified) throws IOException {
+		String sha256 = digest(downloaded);
+		File jar = new File(directory, sha256 + ".jar");
+		if (jar.isFile()) {
+			// same content is already cached under another or an earlier URL
+			Files.delete(downloaded.toPath());
+		} else {
+			try {
+				Files.move(downloaded.toPath(), jar.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(downloaded.toPath(), jar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+
+		manifest.setProperty(jarUrl + SHA256_SUFFIX, sha256);
+		if (etag == null) {
+			manifest.remove(jarUrl + ETAG_SUFFIX);
+		} else {
+			manifest.setProperty(jarUrl + ETAG_SUFFIX, etag);
+		}
+		if (lastModified > 0) {
+			manifest.setProperty(jarUrl + LAST_MODIFIED_SUFFIX, Long.toString(lastModified));
+		} else {
+			manifest.remove(jarUrl + LAST_MODIFIED_SUFFIX);
+		}
+		manifest.setProperty(jarUrl + CHECKED_SUFFIX, Long.toString(System.currentTimeMillis()));
+		saveManifest();
+	}
+}
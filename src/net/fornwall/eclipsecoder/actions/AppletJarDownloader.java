@@ -0,0 +1,259 @@
+package net.fornwall.eclipsecoder.actions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.SubMonitor;
+
+/**
+ * Downloads applet jars concurrently with a bounded number of parallel transfers.
+ *
+ * Each jar is downloaded to a <code>.part</code> file next to its target through a {@link FileChannel} and atomically
+ * moved into place when complete. A <code>.part</code> file left by an interrupted or cancelled transfer is resumed
+ * with an HTTP range request. The modification time of the <code>.part</code> file is set to the last modification
+ * time reported by the server and sent as <code>If-Range</code>, so that a jar changed on the server in between is
+ * downloaded from the start instead of being corrupted.
+ */
+class AppletJarDownloader {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final int MAX_PARALLEL_DOWNLOADS = 4;
+
+	private static final String PART_SUFFIX = ".part";
+
+	private static final int TIMEOUT_MILLIS = 10000;
+
+	private static String formatHttpDate(long time) {
+		SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("GMT"));
+		return format.format(new Date(time));
+	}
+
+	private final AtomicBoolean canceled = new AtomicBoolean();
+
+	private final AtomicLong downloadedBytes = new AtomicLong();
+
+	private final int estimatedSize;
+
+	private final ConcurrentMap<URL, String> etags = new ConcurrentHashMap<URL, String>();
+
+	private final ConcurrentMap<URL, Long> lastModifiedTimes = new ConcurrentHashMap<URL, Long>();
+
+	/**
+	 * @param estimatedSize
+	 *            The size to assume for progress reporting when the server does not report the length of a jar.
+	 */
+	AppletJarDownloader(int estimatedSize) {
+		this.estimatedSize = estimatedSize;
+	}
+
+	/**
+	 * Download a single jar, resuming a previous partial download if possible.
+	 */
+	void download(URL jarUrl, File target) throws IOException {
+		File part = new File(target.getPath() + PART_SUFFIX);
+		long resumeFrom = part.isFile() ? part.length() : 0;
+
+		URLConnection connection = jarUrl.openConnection();
+		connection.setConnectTimeout(TIMEOUT_MILLIS);
+		connection.setReadTimeout(TIMEOUT_MILLIS);
+		if (resumeFrom > 0 && connection instanceof HttpURLConnection) {
+			connection.setRequestProperty("Range", "bytes=" + resumeFrom + "-");
+			connection.setRequestProperty("If-Range", formatHttpDate(part.lastModified()));
+		} else {
+			resumeFrom = 0;
+		}
+		connection.connect();
+
+		if (connection instanceof HttpURLConnection) {
+			int responseCode = ((HttpURLConnection) connection).getResponseCode();
+			if (responseCode == 416) {
+				// requested range not satisfiable - start over
+				((HttpURLConnection) connection).disconnect();
+				if (!part.delete()) {
+					throw new IOException("Cannot delete partial download " + part.getAbsolutePath());
+				}
+				download(jarUrl, target);
+				return;
+			} else if (responseCode != HttpURLConnection.HTTP_PARTIAL) {
+				if (responseCode != HttpURLConnection.HTTP_OK) {
+					throw new IOException("Server returned HTTP " + responseCode + " for " + jarUrl);
+				}
+				resumeFrom = 0;
+			}
+		}
+
+		long contentLength = connection.getContentLength();
+		long expectedSize = (contentLength < 0) ? -1 : resumeFrom + contentLength;
+		long lastModified = connection.getLastModified();
+		String etag = connection.getHeaderField("ETag");
+		if (etag != null) {
+			etags.put(jarUrl, etag);
+		}
+		if (lastModified > 0) {
+			lastModifiedTimes.put(jarUrl, lastModified);
+		}
+		downloadedBytes.addAndGet(resumeFrom);
+
+		StandardOpenOption mode = (resumeFrom > 0) ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING;
+		try (ReadableByteChannel in = Channels.newChannel(connection.getInputStream());
+				FileChannel out = FileChannel.open(part.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+						mode)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				if (canceled.get()) {
+					throw new InterruptedIOException("Download of " + jarUrl + " cancelled");
+				}
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					out.write(buffer);
+				}
+				buffer.clear();
+				downloadedBytes.addAndGet(read);
+			}
+		} finally {
+			if (lastModified > 0) {
+				part.setLastModified(lastModified);
+			}
+		}
+
+		if (expectedSize >= 0 && part.length() != expectedSize) {
+			throw new IOException("Incomplete download of " + jarUrl + ": got " + part.length() + " of " + expectedSize
+					+ " bytes");
+		}
+
+		try {
+			Files.move(part.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(part.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		if (lastModified > 0) {
+			target.setLastModified(lastModified);
+		}
+	}
+
+	/**
+	 * Get the <code>ETag</code> the server returned when downloading a jar.
+	 *
+	 * @return The entity tag, or null if the jar has not been downloaded or the server did not return one.
+	 */
+	String getETag(URL jarUrl) {
+		return etags.get(jarUrl);
+	}
+
+	/**
+	 * Get the <code>Last-Modified</code> time the server returned when downloading a jar.
+	 *
+	 * @return The time in milliseconds, or 0 if the jar has not been downloaded or the server did not return one.
+	 */
+	long getLastModified(URL jarUrl) {
+		Long lastModified = lastModifiedTimes.get(jarUrl);
+		return (lastModified == null) ? 0 : lastModified.longValue();
+	}
+
+	/**
+	 * Download jars concurrently, reporting progress to the monitor.
+	 *
+	 * @param jars
+	 *            Map from jar URL to the local file to download it to.
+	 * @param monitor
+	 *            The monitor to report progress to and check for cancellation, which has not been begun.
+	 * @return true if all jars were downloaded, false if the download was cancelled
+	 * @throws IOException
+	 *             if a download failed
+	 */
+	boolean downloadAll(Map<URL, File> jars, IProgressMonitor monitor) throws IOException {
+		if (jars.isEmpty()) {
+			return true;
+		}
+
+		SubMonitor progress = SubMonitor.convert(monitor, "Downloading applet", jars.size() * estimatedSize);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(MAX_PARALLEL_DOWNLOADS, jars.size()),
+				new ThreadFactory() {
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "EclipseCoder applet download");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		try {
+			List<Future<Void>> downloads = new ArrayList<Future<Void>>();
+			for (final Map.Entry<URL, File> jar : jars.entrySet()) {
+				downloads.add(executor.submit(new Callable<Void>() {
+					public Void call() throws IOException {
+						download(jar.getKey(), jar.getValue());
+						return null;
+					}
+				}));
+			}
+
+			long reported = 0;
+			for (Future<Void> download : downloads) {
+				while (true) {
+					try {
+						download.get(100, TimeUnit.MILLISECONDS);
+						break;
+					} catch (TimeoutException e) {
+						// report progress and check for cancellation below
+					} finally {
+						long downloaded = downloadedBytes.get();
+						progress.worked((int) Math.min(Integer.MAX_VALUE, downloaded - reported));
+						reported = downloaded;
+					}
+					if (progress.isCanceled()) {
+						canceled.set(true);
+						return false;
+					}
+				}
+			}
+			return true;
+		} catch (InterruptedException e) {
+			canceled.set(true);
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (ExecutionException e) {
+			canceled.set(true);
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package net.fornwall.eclipsecoder.actions;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+
+/**
+ * The class loader of the contest applet together with the applet classes and members used by
+ * {@link TopCoderAppletLauncher}.
+ *
+ * The instance for the current applet class path is kept for the lifetime of the workbench, so that relaunching the
+ * applet neither creates a new class loader nor looks up the classes and members again. The classes can be loaded
+ * ahead of a launch with {@link #resolve()}, such as from a background job.
+ */
+final class ContestAppletClasses {
+
+	private static final String DYNAMIC_EDITOR_CLASS = "com.topcoder.client.contestApplet.editors.DynamicEditor";
+
+	private static final String EDITOR_PLUGIN_CLASS = "com.topcoder.client.contestApplet.editors.EditorPlugin";
+
+	private static final String ENTRY_POINT_CLASS = "net.fornwall.eclipsecoder.arena.EclipseCoderEntryPoint";
+
+	private static final String LOCAL_PREFERENCES_CLASS = "com.topcoder.client.contestApplet.common.LocalPreferences";
+
+	private static final String MAIN_FRAME_CLASS = "com.topcoder.client.contestApplet.frames.MainFrame";
+
+	private static final String PLUGIN_MANAGER_CLASS = "com.topcoder.client.contestApplet.editors.PluginManager";
+
+	private static ContestAppletClasses current;
+
+	/**
+	 * Get the applet classes for a class path, reusing the current instance if it was created for the same class path
+	 * and main class.
+	 *
+	 * @param classPath
+	 *            The applet jars followed by the arena plug-in jar.
+	 * @param mainClassName
+	 *            The name of the class whose main method starts the applet.
+	 * @param parent
+	 *            The parent of the class loader if a new one needs to be created.
+	 */
+	static synchronized ContestAppletClasses get(URL[] classPath, String mainClassName, ClassLoader parent) {
+		if (current == null || !Arrays.equals(current.classPath, classPath)
+				|| !current.mainClassName.equals(mainClassName)) {
+			if (current != null && TopCoderAppletLauncher.tcMainFrame == null) {
+				// a running applet keeps using its class loader
+				current.close();
+			}
+			current = new ContestAppletClasses(classPath.clone(), mainClassName, parent);
+		}
+		return current;
+	}
+
+	/**
+	 * Forget and close the given instance, as when its class path turned out to be unusable.
+	 */
+	static synchronized void discard(ContestAppletClasses classes) {
+		if (current == classes) {
+			current = null;
+		}
+		classes.close();
+	}
+
+	private final URL[] classPath;
+
+	private final ClassLoader loader;
+
+	private final String mainClassName;
+
+	private boolean resolved;
+
+	// the members below are set by resolve()
+
+	Constructor<?> dynamicEditorConstructor;
+
+	Field editorField;
+
+	Class<?> editorPluginClass;
+
+	Constructor<?> editorPluginConstructor;
+
+	Class<?> entryPointClass;
+
+	Method getLocalPreferencesMethod;
+
+	Method getPluginManagerMethod;
+
+	Method mainMethod;
+
+	Class<?> mainFrameClass;
+
+	Field methodCacheField;
+
+	Field pluginsCacheField;
+
+	Method setClassPathMethod;
+
+	Method setDefaultEditorNameMethod;
+
+	Method setEagerMethod;
+
+	Method setEditorPluginsMethod;
+
+	/**
+	 * Create an instance for a given class loader, which is not cached.
+	 */
+	ContestAppletClasses(ClassLoader loader, String mainClassName) {
+		this.classPath = null;
+		this.loader = loader;
+		this.mainClassName = mainClassName;
+	}
+
+	private ContestAppletClasses(URL[] classPath, String mainClassName, ClassLoader parent) {
+		this.classPath = classPath;
+		this.loader = new URLClassLoader(classPath, parent);
+		this.mainClassName = mainClassName;
+	}
+
+	private void close() {
+		if (loader instanceof URLClassLoader) {
+			try {
+				((URLClassLoader) loader).close();
+			} catch (IOException e) {
+				// nothing more to do
+			}
+		}
+	}
+
+	ClassLoader getLoader() {
+		return loader;
+	}
+
+	/**
+	 * Load the applet classes and look up the members used to launch the applet, unless already done.
+	 */
+	synchronized void resolve() throws ReflectiveOperationException {
+		if (resolved) {
+			return;
+		}
+		Class<?> mainClass = loader.loadClass(mainClassName);
+		mainMethod = mainClass.getMethod("main", String[].class);
+		mainFrameClass = loader.loadClass(MAIN_FRAME_CLASS);
+		entryPointClass = loader.loadClass(ENTRY_POINT_CLASS);
+
+		Class<?> pluginManagerClass = loader.loadClass(PLUGIN_MANAGER_CLASS);
+		getPluginManagerMethod = pluginManagerClass.getMethod("getInstance");
+		pluginsCacheField = pluginManagerClass.getDeclaredField("cache");
+		pluginsCacheField.setAccessible(true);
+
+		editorPluginClass = loader.loadClass(EDITOR_PLUGIN_CLASS);
+		editorPluginConstructor = editorPluginClass.getConstructor(String.class, String.class, String.class,
+				boolean.class);
+		setEagerMethod = editorPluginClass.getMethod("setEager", boolean.class);
+		setClassPathMethod = editorPluginClass.getMethod("setClassPath", String.class);
+		setEditorPluginsMethod = pluginManagerClass.getMethod("setEditorPlugins",
+				Array.newInstance(editorPluginClass, 0).getClass());
+
+		Class<?> localPreferencesClass = loader.loadClass(LOCAL_PREFERENCES_CLASS);
+		getLocalPreferencesMethod = localPreferencesClass.getMethod("getInstance");
+		setDefaultEditorNameMethod = localPreferencesClass.getMethod("setDefaultEditorName", String.class);
+
+		Class<?> dynamicEditorClass = loader.loadClass(DYNAMIC_EDITOR_CLASS);
+		dynamicEditorConstructor = dynamicEditorClass.getConstructor(editorPluginClass);
+		editorField = dynamicEditorClass.getDeclaredField("editor");
+		editorField.setAccessible(true);
+		methodCacheField = dynamicEditorClass.getDeclaredField("methodCache");
+		methodCacheField.setAccessible(true);
+
+		resolved = true;
+	}
+}
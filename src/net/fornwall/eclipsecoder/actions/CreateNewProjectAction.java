@@ -10,7 +10,6 @@ import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.resources.IWorkspaceRoot;
 import org.eclipse.core.resources.ResourcesPlugin;
-import org.eclipse.core.runtime.preferences.IEclipsePreferences;
 import org.eclipse.jface.action.Action;
 import org.eclipse.jface.dialogs.Dialog;
 import org.eclipse.jface.window.Window;
@@ -132,10 +131,6 @@ public class CreateNewProjectAction extends Action {
 		setEnabled(false);
 	}
 
-	private IEclipsePreferences getPrefs() {
-		return (project == null) ? null : EclipseCoderPlugin.getProjectPrefs(project);
-	}
-
 	@Override
 	public void run() {
 		if (LanguageSupportFactory.supportedLanguages().isEmpty()) {
@@ -162,7 +157,7 @@ public class CreateNewProjectAction extends Action {
 
 			LanguageSupport languageSupport = LanguageSupportFactory.createLanguageSupport(language);
 			languageSupport.setProjectName(projectName);
-			languageSupport.createProject(problem);
+			languageSupport.createProjectInBackground(problem);
 		} catch (Exception e) {
 			Utilities.showException(e);
 		}
@@ -170,10 +165,7 @@ public class CreateNewProjectAction extends Action {
 
 	public void setCurrentProject(IProject project) {
 		this.project = project;
-		IEclipsePreferences prefs = getPrefs();
-
-		String xmlString = (prefs == null) ? null : prefs.get(ProblemStatement.XML_PREFS_KEY, null);
-		setEnabled(xmlString != null);
+		setEnabled(EclipseCoderPlugin.hasProblemStatement(project));
 	}
 
 }
@@ -1,19 +1,13 @@
 package net.fornwall.eclipsecoder.actions;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.net.URLClassLoader;
-import java.net.URLConnection;
-
-import javax.xml.parsers.DocumentBuilderFactory;
+import java.util.List;
+import java.util.Map;
 
 import net.fornwall.eclipsecoder.preferences.EclipseCoderPlugin;
-import net.fornwall.eclipsecoder.util.Utilities;
 
 import org.eclipse.core.runtime.FileLocator;
 import org.eclipse.core.runtime.IPath;
@@ -21,16 +15,14 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.core.runtime.jobs.Job;
 import org.osgi.framework.Bundle;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
 
 /**
- * Job to launch the TopCoder contest applet. Downloads on demand from
- * http://www.topcoder.com/contest/classes/ContestApplet.jar and delegates actual launching to
- * {@link TopCoderAppletLauncher}.
+ * Job to launch the TopCoder contest applet. Downloads the jars listed in the JNLP descriptor of the applet on demand
+ * and delegates actual launching to {@link TopCoderAppletLauncher}. The descriptor and the jars are cached, so that
+ * the applet can be launched without contacting the server.
  */
 public class LaunchTopCoderAppletJob extends Job {
 
@@ -38,147 +30,177 @@ public class LaunchTopCoderAppletJob extends Job {
 
 	private static final int ESTIMATED_APPLET_SIZE = 2000000;
 
-	private static boolean classLoaderWorks(ClassLoader loader) {
+	private static boolean classLoaderWorks(ClassLoader loader, String mainClass) {
 		try {
-			loader.loadClass("com.topcoder.client.contestApplet.runner.generic");
+			loader.loadClass(mainClass);
 			return true;
 		} catch (Exception e) {
 			return false;
 		}
 	}
 
-	private static File getLocalAppletJar(URL jarUrl) {
-		String jarFileName = jarUrl.getPath().substring(jarUrl.getPath().lastIndexOf('/') + 1);
-
-		File userHome = new File(System.getProperty("user.home"));
-		File eclipsecoderDir = new File(userHome, ".eclipsecoder");
-		if (((eclipsecoderDir.exists() && eclipsecoderDir.isDirectory()) || eclipsecoderDir.mkdir())
-				&& (eclipsecoderDir.canRead() && eclipsecoderDir.canWrite())) {
-			// try with global jar location outside workspace
-			return new File(eclipsecoderDir, jarFileName);
+	/**
+	 * Get the class path of the applet from the cached jars.
+	 *
+	 * @return the class path, or null if not all jars are cached
+	 */
+	private static URL[] getClassPath(List<URL> appletJars, AppletJarCache cache) throws MalformedURLException {
+		URL[] urls = new URL[appletJars.size() + 1];
+		for (int i = 0; i < appletJars.size(); i++) {
+			File localAppletJar = cache.getJar(appletJars.get(i));
+			if (localAppletJar == null) {
+				return null;
+			}
+			urls[i] = localAppletJar.toURI().toURL();
 		}
-		IPath stateLocation = EclipseCoderPlugin.getDefault().getStateLocation();
-		IPath jarLocation = stateLocation.append(jarFileName);
-		return jarLocation.toFile();
+		Bundle bundle = EclipseCoderPlugin.getDefault().getBundle();
+		Path path = new Path("arenaplugin.jar");
+		urls[appletJars.size()] = FileLocator.find(bundle, path, null);
+		return urls;
 	}
 
-	public LaunchTopCoderAppletJob(String name) {
-		super(name);
+	private static File getAppletDescriptorFile() {
+		return EclipseCoderPlugin.getDefault().getStateLocation().append("applet.jnlp.properties").toFile();
 	}
 
-	private IStatus download(IProgressMonitor monitor, URL jarUrl) {
-		File jar = getLocalAppletJar(jarUrl);
+	private static AppletJarCache getAppletJarCache() {
+		IPath cacheLocation = EclipseCoderPlugin.getDefault().getStateLocation().append("appletjars");
+		return new AppletJarCache(cacheLocation.toFile(), EclipseCoderPlugin.appletCacheTimeToLive());
+	}
 
-		try {
-			URLConnection connection = jarUrl.openConnection();
-			int jarSize = (connection.getContentLength() == -1) ? ESTIMATED_APPLET_SIZE : connection.getContentLength();
-			monitor.beginTask("Downloading applet: " + jarUrl, jarSize);
-
-			try (InputStream in = connection.getInputStream(); OutputStream out = new FileOutputStream(jar)) {
-				byte[] buffer = new byte[2048];
-				int i;
-				while ((i = in.read(buffer)) != -1) {
-					if (monitor.isCanceled()) {
-						if (jar.exists()) {
-							if (!jar.delete()) {
-								Utilities.showMessageDialog("Cannot delete file",
-										"Cannot delete applet file:\n" + jar.getAbsolutePath()
-												+ "\n\nCheck permissions if problem persists.", true);
-							}
-						}
-						StartTopCoderAppletAction.getAction().setEnabled(true);
-						return Status.CANCEL_STATUS;
+	/**
+	 * Schedule a background job loading the classes of the applet if it has been downloaded before, so that launching
+	 * it later does not have to. Nothing is downloaded by this job.
+	 */
+	public static void scheduleWarmUp() {
+		Job warmUpJob = new Job("Preparing TopCoder contest applet") {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				AppletDescriptor descriptor = AppletDescriptor.load(getAppletDescriptorFile());
+				if (descriptor == null) {
+					return Status.OK_STATUS;
+				}
+				try {
+					URL[] classPath = getClassPath(descriptor.getJars(), getAppletJarCache());
+					if (classPath != null) {
+						ContestAppletClasses.get(classPath, descriptor.getMainClass(),
+								LaunchTopCoderAppletJob.class.getClassLoader()).resolve();
 					}
-					out.write(buffer, 0, i);
-					monitor.worked(i);
+				} catch (Exception e) {
+					// the launch will report any problem
 				}
+				return Status.OK_STATUS;
 			}
-		} catch (MalformedURLException e) {
-			// should never happen as APPLET_URL is a valid URL
-			if (jar.exists()) {
-				jar.delete();
+		};
+		warmUpJob.setSystem(true);
+		warmUpJob.setPriority(Job.DECORATE);
+		warmUpJob.schedule();
+	}
+
+	public LaunchTopCoderAppletJob(String name) {
+		super(name);
+	}
+
+	/**
+	 * Download jars concurrently and add them to the cache, keeping partial downloads of cancelled or failed transfers
+	 * so that they can be resumed on the next launch.
+	 * 
+	 * @return null on success, otherwise the status to return from the job
+	 */
+	private IStatus download(IProgressMonitor monitor, AppletJarCache cache, Map<URL, File> jars) {
+		try {
+			AppletJarDownloader downloader = new AppletJarDownloader(ESTIMATED_APPLET_SIZE);
+			if (!downloader.downloadAll(jars, monitor)) {
+				StartTopCoderAppletAction.getAction().setEnabled(true);
+				return Status.CANCEL_STATUS;
 			}
-			StartTopCoderAppletAction.getAction().setEnabled(true);
-			Utilities.showException(e);
-		} catch (IOException e) {
-			if (jar.exists()) {
-				jar.delete();
+			for (Map.Entry<URL, File> jar : jars.entrySet()) {
+				cache.store(jar.getKey(), jar.getValue(), downloader.getETag(jar.getKey()),
+						downloader.getLastModified(jar.getKey()));
 			}
+		} catch (IOException e) {
 			StartTopCoderAppletAction.getAction().setEnabled(true);
 			return new Status(IStatus.ERROR, EclipseCoderPlugin.PLUGIN_ID, IStatus.OK, e.getMessage(), e);
 		}
-
 		return null;
 	}
 
+	/**
+	 * Get the saved applet descriptor, refreshing it in the background if older than the time-to-live, or fetch it if
+	 * none has been saved yet.
+	 */
+	private AppletDescriptor getAppletDescriptor(IProgressMonitor monitor) throws IOException {
+		final File descriptorFile = getAppletDescriptorFile();
+		AppletDescriptor descriptor = AppletDescriptor.load(descriptorFile);
+		if (descriptor == null) {
+			monitor.beginTask("Downloading JNLP: " + APPLET_JNLP, IProgressMonitor.UNKNOWN);
+			descriptor = AppletDescriptor.fetch(new URL(APPLET_JNLP));
+			descriptor.save(descriptorFile);
+		} else if (descriptor.isStale(EclipseCoderPlugin.appletCacheTimeToLive())) {
+			Job refreshJob = new Job("Refreshing TopCoder contest applet descriptor") {
+				@Override
+				protected IStatus run(IProgressMonitor refreshMonitor) {
+					try {
+						AppletDescriptor.fetch(new URL(APPLET_JNLP)).save(descriptorFile);
+					} catch (IOException e) {
+						// offline or server unavailable - keep the saved descriptor and retry on next launch
+					}
+					return Status.OK_STATUS;
+				}
+			};
+			refreshJob.setSystem(true);
+			refreshJob.schedule();
+		}
+		return descriptor;
+	}
+
 	@Override
 	protected IStatus run(IProgressMonitor monitor) {
-		URL[] appletJars;
-
+		SubMonitor progress = SubMonitor.convert(monitor, 10);
+		AppletDescriptor descriptor;
 		try {
-			monitor.beginTask("Downloading JNLP: " + APPLET_JNLP, IProgressMonitor.UNKNOWN);
-			Document jnlpDoc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(APPLET_JNLP);
-			NodeList jarList = jnlpDoc.getElementsByTagName("jar");
-			appletJars = new URL[jarList.getLength()];
-			for (int i = 0; i < jarList.getLength(); i++) {
-				appletJars[i] = new URL(((Element) jarList.item(i)).getAttribute("href"));
-			}
-		} catch (Exception e) {
+			descriptor = getAppletDescriptor(progress.newChild(1));
+		} catch (IOException e) {
+			StartTopCoderAppletAction.getAction().setEnabled(true);
 			return new Status(IStatus.ERROR, EclipseCoderPlugin.PLUGIN_ID, IStatus.OK, e.getMessage(), e);
 		}
+		List<URL> appletJars = descriptor.getJars();
 
-		for (URL appletJar : appletJars) {
-			File localAppletJar = getLocalAppletJar(appletJar);
-			if (!localAppletJar.exists()) {
-				IStatus status = download(monitor, appletJar);
-				if (status != null)
-					return status;
-			}
-		}
-
-		for (URL appletJar : appletJars) {
-			File localAppletJar = getLocalAppletJar(appletJar);
-			if (!localAppletJar.exists()) {
-				// should have been downloaded above
-				return new Status(IStatus.ERROR, EclipseCoderPlugin.PLUGIN_ID, IStatus.OK, "Applet does not exist at "
-						+ localAppletJar.getAbsolutePath(), null);
-			}
-		}
+		progress.subTask("Checking for applet updates");
+		AppletJarCache cache = getAppletJarCache();
+		IStatus downloadStatus = download(progress.newChild(9), cache, cache.getStaleJars(appletJars));
+		if (downloadStatus != null)
+			return downloadStatus;
 
 		try {
-			for (URL appletJar : appletJars) {
-				File localAppletJar = getLocalAppletJar(appletJar);
-				long lastModifiedLocal = localAppletJar.lastModified();
-				URLConnection connection = appletJar.openConnection();
-				long lastModifiedRemote = connection.getLastModified();
-				if (lastModifiedRemote > lastModifiedLocal) {
-					IStatus status = download(monitor, appletJar);
-					if (status != null)
-						return status;
-				}
+			URL[] classPath = getClassPath(appletJars, cache);
+			if (classPath == null) {
+				// should have been downloaded above
+				StartTopCoderAppletAction.getAction().setEnabled(true);
+				return new Status(IStatus.ERROR, EclipseCoderPlugin.PLUGIN_ID, IStatus.OK,
+						"Not all applet jars have been downloaded", null);
 			}
-			URL[] urls = new URL[appletJars.length + 1];
-			for (int i = 0; i < appletJars.length; i++) {
-				urls[i] = getLocalAppletJar(appletJars[i]).toURI().toURL();
+			ClassLoader parent = LaunchTopCoderAppletJob.class.getClassLoader();
+			ContestAppletClasses classes = ContestAppletClasses.get(classPath, descriptor.getMainClass(), parent);
+			if (TopCoderAppletLauncher.tcMainFrame == null) {
+				// any class loader over replaced jars has been closed, while a kept applet would still use its own
+				cache.deleteUnreferencedJars();
 			}
-			Bundle bundle = EclipseCoderPlugin.getDefault().getBundle();
-			Path path = new Path("arenaplugin.jar");
-			urls[appletJars.length] = FileLocator.find(bundle, path, null);
-
-			ClassLoader parent = Thread.currentThread().getContextClassLoader();
-			ClassLoader loader = new URLClassLoader(urls, parent);
 
-			if (classLoaderWorks(loader)) {
-				TopCoderAppletLauncher.run(loader);
+			if (classLoaderWorks(classes.getLoader(), descriptor.getMainClass())) {
+				TopCoderAppletLauncher.run(classes);
 			} else {
+				ContestAppletClasses.discard(classes);
 				StartTopCoderAppletAction.getAction().setEnabled(true);
+				// the descriptor may be outdated as well
+				getAppletDescriptorFile().delete();
 				String message;
 				String paths = "";
 
 				boolean flag = true;
 				for (URL appletJar : appletJars) {
-					File localAppletJar = getLocalAppletJar(appletJar);
-					if (!localAppletJar.delete()) {
+					File localAppletJar = cache.getJar(appletJar);
+					if (!cache.remove(appletJar)) {
 						paths += "," + localAppletJar.getAbsolutePath();
 						flag = false;
 					}
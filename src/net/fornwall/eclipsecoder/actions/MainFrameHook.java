@@ -0,0 +1,48 @@
+package net.fornwall.eclipsecoder.actions;
+
+import java.awt.AWTEvent;
+import java.awt.Toolkit;
+import java.awt.event.AWTEventListener;
+import java.awt.event.WindowEvent;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.JFrame;
+
+/**
+ * One-shot hook catching the activation of the main frame of the contest applet.
+ *
+ * As the frame is created by the applet itself, the hook has to listen to the window events of the whole JVM,
+ * including those of the workbench, until the frame shows up. The source of each event is matched against the main
+ * frame class by identity and the hook removes itself as soon as the frame has been activated.
+ */
+abstract class MainFrameHook implements AWTEventListener {
+
+	private final AtomicBoolean done = new AtomicBoolean();
+
+	private final Class<?> mainFrameClass;
+
+	/**
+	 * @param mainFrameClass
+	 *            The class of the main frame of the applet as loaded by the applet class loader.
+	 */
+	MainFrameHook(Class<?> mainFrameClass) {
+		this.mainFrameClass = mainFrameClass;
+	}
+
+	/**
+	 * Called in the event dispatch thread when the main frame has been activated. The hook has already been removed.
+	 */
+	abstract void activated(JFrame mainFrame);
+
+	public void eventDispatched(AWTEvent event) {
+		if (event.getID() == WindowEvent.WINDOW_ACTIVATED && event.getSource().getClass() == mainFrameClass
+				&& done.compareAndSet(false, true)) {
+			Toolkit.getDefaultToolkit().removeAWTEventListener(this);
+			activated((JFrame) event.getSource());
+		}
+	}
+
+	void install() {
+		Toolkit.getDefaultToolkit().addAWTEventListener(this, AWTEvent.WINDOW_EVENT_MASK);
+	}
+}
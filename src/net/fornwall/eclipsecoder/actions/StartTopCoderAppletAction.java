@@ -16,6 +16,7 @@ public class StartTopCoderAppletAction extends Action {
 				"icons/tc_logo.gif")));
 		setToolTipText("Start the TopCoder contest applet");
 		instance = this;
+		LaunchTopCoderAppletJob.scheduleWarmUp();
 	}
 
 	public static StartTopCoderAppletAction getAction() {
@@ -1,16 +1,11 @@
 package net.fornwall.eclipsecoder.actions;
 
-import java.awt.AWTEvent;
 import java.awt.EventQueue;
-import java.awt.Toolkit;
-import java.awt.event.AWTEventListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
 import java.io.File;
 import java.lang.reflect.Array;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.Map;
 
@@ -25,30 +20,54 @@ import net.fornwall.eclipsecoder.util.Utilities;
 
 public class TopCoderAppletLauncher {
 
-	static volatile JFrame tcMainFrame = null;
+	/**
+	 * Logs on once when the main frame is activated, and is removed after that or when the frame is closed.
+	 */
+	private static class AutoLogonListener extends WindowAdapter {
+		private final String password;
 
-	private static void addAutoLogon() {
-		if (EclipseCoderPlugin.tcAutoLogon()) {
-			final String userName = EclipseCoderPlugin.tcUserName();
-			final String password = EclipseCoderPlugin.tcPassword();
+		private final String userName;
 
-			Toolkit.getDefaultToolkit().addAWTEventListener(new AWTEventListener() {
-				public void eventDispatched(AWTEvent event) {
-					if (!(event.getSource().getClass().getName().equals("com.topcoder.client.contestApplet.frames.MainFrame")))
-						return;
-					if (event.getID() != WindowEvent.WINDOW_ACTIVATED)
-						return;
+		AutoLogonListener(String userName, String password) {
+			this.userName = userName;
+			this.password = password;
+		}
 
-					try {
-						logon(event.getSource(), userName, password);
-					} catch (Exception e) {
-						Utilities.showException(e);
-					}
+		@Override
+		public void windowActivated(WindowEvent e) {
+			// remove ourself - just one try should be enough
+			e.getWindow().removeWindowListener(this);
+			autoLogon(e.getWindow(), userName, password);
+		}
 
-					// remove ourself - just one try should be enough
-					Toolkit.getDefaultToolkit().removeAWTEventListener(this);
-				}
-			}, AWTEvent.WINDOW_EVENT_MASK);
+		@Override
+		public void windowClosed(WindowEvent e) {
+			e.getWindow().removeWindowListener(this);
+		}
+	}
+
+	static volatile JFrame tcMainFrame = null;
+
+	/**
+	 * Log on once the already created main frame is activated again, replacing any auto logon still pending.
+	 */
+	private static void addAutoLogon(JFrame mainFrame) {
+		for (WindowListener listener : mainFrame.getWindowListeners()) {
+			if (listener instanceof AutoLogonListener) {
+				mainFrame.removeWindowListener(listener);
+			}
+		}
+		if (EclipseCoderPlugin.tcAutoLogon()) {
+			mainFrame.addWindowListener(new AutoLogonListener(EclipseCoderPlugin.tcUserName(), EclipseCoderPlugin
+					.tcPassword()));
+		}
+	}
+
+	private static void autoLogon(Object mainFrame, String userName, String password) {
+		try {
+			logon(mainFrame, userName, password);
+		} catch (Exception e) {
+			Utilities.showException(e);
 		}
 	}
 
@@ -105,13 +124,20 @@ public class TopCoderAppletLauncher {
 		});
 	}
 
+	private static final String DEFAULT_MAIN_CLASS = "com.topcoder.client.contestApplet.runner.generic";
+
 	public static void run(ClassLoader loader) {
+		run(new ContestAppletClasses(loader, DEFAULT_MAIN_CLASS));
+	}
+
+	static void run(ContestAppletClasses classes) {
 		StartTopCoderAppletAction.getAction().setEnabled(false);
-		addAutoLogon();
-		if (tcMainFrame != null) {
-			tcMainFrame.setVisible(true);
+		JFrame mainFrame = tcMainFrame;
+		if (mainFrame != null) {
+			addAutoLogon(mainFrame);
+			mainFrame.setVisible(true);
 		} else {
-			startContestAppletFirstTime(loader);
+			startContestAppletFirstTime(classes);
 		}
 	}
 
@@ -127,22 +153,23 @@ public class TopCoderAppletLauncher {
 	}
 
 	@SuppressWarnings("unchecked")
-	private static void startContestAppletFirstTime(final ClassLoader loader) {
+	private static void startContestAppletFirstTime(final ContestAppletClasses classes) {
 		// do not overwrite existing contestapplet.conf in home:
 		System.setProperty("com.topcoder.client.contestApplet.common.LocalPreferences.filelocation",
 				getContestAppletConfDir().getAbsolutePath());
 
 		try {
-			Toolkit.getDefaultToolkit().addAWTEventListener(new AWTEventListener() {
-				public void eventDispatched(AWTEvent event) {
-					try {
-						if (!(event.getSource().getClass().getName().equals("com.topcoder.client.contestApplet.frames.MainFrame")))
-							return;
-						if (event.getID() != WindowEvent.WINDOW_ACTIVATED)
-							return;
+			// normally already done by the warm-up job
+			classes.resolve();
 
-						final JFrame mainFrame = (JFrame) event.getSource();
+			final boolean autoLogon = EclipseCoderPlugin.tcAutoLogon();
+			final String userName = EclipseCoderPlugin.tcUserName();
+			final String password = EclipseCoderPlugin.tcPassword();
 
+			new MainFrameHook(classes.mainFrameClass) {
+				@Override
+				void activated(final JFrame mainFrame) {
+					try {
 						fixVerify(mainFrame);
 						fixShutdown(mainFrame);
 
@@ -154,87 +181,59 @@ public class TopCoderAppletLauncher {
 							}
 						});
 
-						// remove ourself - just one try should be
-						// enough
-						Toolkit.getDefaultToolkit().removeAWTEventListener(this);
-
-						Class<?> eclipseCoderEntryPointClass = loader
-								.loadClass("net.fornwall.eclipsecoder.arena.EclipseCoderEntryPoint");
+						// synchronizes with the resolving thread
+						classes.resolve();
 
-						Class<?> pluginManagerClass = loader
-								.loadClass("com.topcoder.client.contestApplet.editors.PluginManager");
-						Method getInstanceMethod = pluginManagerClass.getMethod("getInstance");
-						Object pluginManager = getInstanceMethod.invoke(null);
+						Object pluginManager = classes.getPluginManagerMethod.invoke(null);
 						// PluginManager pluginManager =
 						// PluginManager.getInstance();
 
-						Class<?> editorPluginClass = loader
-								.loadClass("com.topcoder.client.contestApplet.editors.EditorPlugin");
-						Constructor<?> constructorMethod = editorPluginClass.getConstructor(String.class, String.class,
-								String.class, boolean.class);
-						Object editorPlugin = constructorMethod.newInstance("EclipseCoder",
-								eclipseCoderEntryPointClass.getName(), "", false);
+						Object editorPlugin = classes.editorPluginConstructor.newInstance("EclipseCoder",
+								classes.entryPointClass.getName(), "", false);
 						// EditorPlugin editorPlugin = new
 						// EditorPlugin("EclipseCoder",
 						// EclipseCoderEntryPoint.class.getName(), "",
 						// false);
 
-						Method setEagerMethod = editorPlugin.getClass().getMethod("setEager", boolean.class);
-						setEagerMethod.invoke(editorPlugin, true);
+						classes.setEagerMethod.invoke(editorPlugin, true);
 						// editorPlugin.setEager(true);
 
 						String classPath = StartTopCoderAppletAction.class.getProtectionDomain().getCodeSource()
 								.getLocation().getPath();
 
-						Method setClassPathMethod = editorPlugin.getClass().getMethod("setClassPath", String.class);
-						setClassPathMethod.invoke(editorPlugin, classPath);
+						classes.setClassPathMethod.invoke(editorPlugin, classPath);
 						// editorPlugin.setClassPath(classPath);
 
-						Object editorPluginsArray = Array.newInstance(editorPluginClass, 1);
+						Object editorPluginsArray = Array.newInstance(classes.editorPluginClass, 1);
 						Array.set(editorPluginsArray, 0, editorPlugin);
-						Method setEditorPluginsMethod = pluginManager.getClass().getMethod("setEditorPlugins",
-								editorPluginsArray.getClass());
-						setEditorPluginsMethod.invoke(pluginManager, editorPluginsArray);
+						classes.setEditorPluginsMethod.invoke(pluginManager, editorPluginsArray);
 						// pluginManager.setEditorPlugins(new
 						// EditorPlugin[] {
 						// editorPlugin
 						// });
 
-						Class<?> localPreferencesClass = loader
-								.loadClass("com.topcoder.client.contestApplet.common.LocalPreferences");
-						getInstanceMethod = localPreferencesClass.getMethod("getInstance");
-						Object localPreferencesInstance = getInstanceMethod.invoke(null);
-						Method setDefaultEditorNameMethod = localPreferencesInstance.getClass().getMethod(
-								"setDefaultEditorName", String.class);
-						setDefaultEditorNameMethod.invoke(localPreferencesInstance, "EclipseCoder");
+						Object localPreferencesInstance = classes.getLocalPreferencesMethod.invoke(null);
+						classes.setDefaultEditorNameMethod.invoke(localPreferencesInstance, "EclipseCoder");
 						// LocalPreferences.getInstance().setDefaultEditorName("EclipseCoder");
 
-						Field cacheField = pluginManagerClass.getDeclaredField("cache");
-						cacheField.setAccessible(true);
-						Map<String, Object> pluginsCache = (Map<String, Object>) cacheField.get(pluginManager);
+						Map<String, Object> pluginsCache = (Map<String, Object>) classes.pluginsCacheField
+								.get(pluginManager);
 
-						Class<?> dynamicEditorClass = loader
-								.loadClass("com.topcoder.client.contestApplet.editors.DynamicEditor");
-						Constructor<?> dynamicEditorConstructor = dynamicEditorClass.getConstructor(editorPluginClass);
-						Object ownEditor = dynamicEditorConstructor.newInstance(editorPlugin);
+						Object ownEditor = classes.dynamicEditorConstructor.newInstance(editorPlugin);
 						// DynamicEditor ownEditor = new
 						// DynamicEditor(editorPlugin);
 						pluginsCache.put("EclipseCoder", ownEditor);
-						Field editorField = dynamicEditorClass.getDeclaredField("editor");
-						editorField.setAccessible(true);
 
-						Object eclipseCoderEntryPoint = eclipseCoderEntryPointClass.newInstance();
-						editorField.set(ownEditor, eclipseCoderEntryPoint);
+						Object eclipseCoderEntryPoint = classes.entryPointClass.newInstance();
+						classes.editorField.set(ownEditor, eclipseCoderEntryPoint);
 
 						// the methodCache is built in constructor
 						// against custom
 						// loaded
 						// class and needs to be
 						// replaced
-						Field methodCacheField = dynamicEditorClass.getDeclaredField("methodCache");
-						methodCacheField.setAccessible(true);
-						Map<String, Method> methodCache = (Map<String, Method>) methodCacheField.get(ownEditor);
-						for (Method m : eclipseCoderEntryPointClass.getMethods()) {
+						Map<String, Method> methodCache = (Map<String, Method>) classes.methodCacheField.get(ownEditor);
+						for (Method m : classes.entryPointClass.getMethods()) {
 							if (m.getName().equals("loadClasses")) {
 								m.invoke(eclipseCoderEntryPoint);
 							}
@@ -244,14 +243,16 @@ public class TopCoderAppletLauncher {
 					} catch (Exception e) {
 						e.printStackTrace();
 					}
+
+					if (autoLogon) {
+						autoLogon(mainFrame, userName, password);
+					}
 				}
-			}, AWTEvent.WINDOW_EVENT_MASK);
+			}.install();
 
-			Class<?> genericClass = loader.loadClass("com.topcoder.client.contestApplet.runner.generic");
-			Method mainMethod = genericClass.getMethod("main", String[].class);
 			// arguments taken from the JNLP file:
 			// http://www.topcoder.com/contest/arena/ContestAppletProd.jnlp
-			mainMethod.invoke(null, new Object[] { new String[] { "www.topcoder.com", "5001",
+			classes.mainMethod.invoke(null, new Object[] { new String[] { "www.topcoder.com", "5001",
 					"http://tunnel1.topcoder.com/dummy?tunnel", "TopCoder" } });
 		} catch (Exception e) {
 			Utilities.showException(e);
@@ -0,0 +1,117 @@
+package net.fornwall.eclipsecoder.languages;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.fornwall.eclipsecoder.preferences.EclipseCoderPlugin;
+import net.fornwall.eclipsecoder.stats.ProblemStatement;
+
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Job to create projects for a whole set of problems, such as all problems of a match, in one go.
+ *
+ * All projects are created inside a single workspace runnable so that the workspace lock is acquired and resource
+ * change notifications are sent once, followed by a single build of the workspace. Unlike
+ * {@link LanguageSupport#createProject(ProblemStatement)} no dialogs are shown and no editors are opened - existing
+ * projects are reused and problems whose project exists without the expected source file are reported in the result
+ * status.
+ */
+public class CreateProjectsJob extends Job {
+
+	private final List<CreatedProject> createdProjects = Collections.synchronizedList(new ArrayList<CreatedProject>());
+
+	private final String languageName;
+
+	private final List<ProblemStatement> problemStatements;
+
+	/**
+	 * @param languageName
+	 *            The name of the programming language to create projects for.
+	 * @param problemStatements
+	 *            The problems to create projects for.
+	 */
+	public CreateProjectsJob(String languageName, List<ProblemStatement> problemStatements) {
+		super("Creating " + problemStatements.size() + " " + languageName + " projects");
+		this.languageName = languageName;
+		this.problemStatements = new ArrayList<ProblemStatement>(problemStatements);
+		setRule(ResourcesPlugin.getWorkspace().getRoot());
+	}
+
+	/**
+	 * Get the projects created (or reused) so far, in the order of the problem statements.
+	 */
+	public List<CreatedProject> getCreatedProjects() {
+		synchronized (createdProjects) {
+			return new ArrayList<CreatedProject>(createdProjects);
+		}
+	}
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		final MultiStatus result = new MultiStatus(EclipseCoderPlugin.PLUGIN_ID, IStatus.OK, "Creating projects",
+				null);
+		final SubMonitor progress = SubMonitor.convert(monitor, getName(), problemStatements.size() + 1);
+		IWorkspace workspace = ResourcesPlugin.getWorkspace();
+
+		try {
+			workspace.run(new IWorkspaceRunnable() {
+				public void run(IProgressMonitor runnableMonitor) throws CoreException {
+					for (ProblemStatement problemStatement : problemStatements) {
+						if (progress.isCanceled()) {
+							throw new OperationCanceledException();
+						}
+						progress.subTask(problemStatement.getSolutionClassName());
+						try {
+							LanguageSupport languageSupport = LanguageSupportFactory
+									.createLanguageSupport(languageName);
+							if (languageSupport == null) {
+								result.add(new Status(IStatus.ERROR, EclipseCoderPlugin.PLUGIN_ID, IStatus.OK,
+										"No language support found for " + languageName, null));
+								return;
+							}
+							CreatedProject created = languageSupport.createProjectUnattended(problemStatement);
+							if (created == null) {
+								result.add(new Status(IStatus.WARNING, EclipseCoderPlugin.PLUGIN_ID, IStatus.OK,
+										"The project \"" + languageSupport.getProjectName()
+												+ "\" already exists but lacks the expected source file", null));
+							} else {
+								createdProjects.add(created);
+							}
+						} catch (Exception e) {
+							result.add(new Status(IStatus.ERROR, EclipseCoderPlugin.PLUGIN_ID, IStatus.OK,
+									"Could not create project for " + problemStatement.getSolutionClassName(), e));
+						}
+						progress.worked(1);
+					}
+				}
+			}, workspace.getRoot(), IWorkspace.AVOID_UPDATE, null);
+
+			// with auto-building the build is triggered when the runnable above ends
+			if (!workspace.isAutoBuilding()) {
+				progress.subTask("Building");
+				workspace.build(IncrementalProjectBuilder.INCREMENTAL_BUILD, progress.newChild(1));
+			}
+		} catch (OperationCanceledException e) {
+			return Status.CANCEL_STATUS;
+		} catch (CoreException e) {
+			return e.getStatus();
+		} finally {
+			monitor.done();
+		}
+
+		return result.isOK() ? Status.OK_STATUS : result;
+	}
+}
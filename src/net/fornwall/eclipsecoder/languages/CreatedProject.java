@@ -1,10 +1,13 @@
 package net.fornwall.eclipsecoder.languages;
 
+import java.util.concurrent.TimeUnit;
+
 import net.fornwall.eclipsecoder.util.Utilities;
 import net.fornwall.eclipsecoder.views.ProblemStatementView;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.ui.IWorkbenchWindow;
 import org.eclipse.ui.PartInitException;
 import org.eclipse.ui.PlatformUI;
@@ -12,14 +15,41 @@ import org.eclipse.ui.part.FileEditorInput;
 
 public class CreatedProject {
 
-	IFile sourceFile;
+	volatile IFile sourceFile;
 	private IProject project;
 	String editorId;
+	Job creationJob;
+	private final long startTime;
+	private volatile long timeToEditor = -1;
 
 	public CreatedProject(IProject project, IFile sourceFile, String editorId) {
+		this(project, sourceFile, editorId, System.nanoTime());
+	}
+
+	CreatedProject(IProject project, IFile sourceFile, String editorId, long startTime) {
 		this.project = project;
 		this.sourceFile = sourceFile;
 		this.editorId = editorId;
+		this.startTime = startTime;
+	}
+
+	/**
+	 * Get the job creating the project in the background.
+	 * 
+	 * @return the creation job, or null if the project was not created by
+	 *         {@link LanguageSupport#createProjectInBackground(net.fornwall.eclipsecoder.stats.ProblemStatement)}
+	 */
+	public Job getCreationJob() {
+		return creationJob;
+	}
+
+	/**
+	 * Get the time from the request to create the project until the solution was opened in an editor.
+	 * 
+	 * @return the time in milliseconds, or -1 if the editor has not been opened (yet)
+	 */
+	public long getTimeToEditor() {
+		return timeToEditor;
 	}
 
 	public IFile getSourceFile() {
@@ -42,6 +72,7 @@ public class CreatedProject {
 					IWorkbenchWindow window = PlatformUI.getWorkbench().getActiveWorkbenchWindow();
 					window.getActivePage().showView(ProblemStatementView.VIEW_ID);
 					window.getActivePage().openEditor(new FileEditorInput(sourceFile), editorId);
+					timeToEditor = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
 				} catch (PartInitException e) {
 					Utilities.showException(e);
 				}
@@ -1,7 +1,19 @@
 package net.fornwall.eclipsecoder.languages;
 
+import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
-import java.lang.reflect.InvocationTargetException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import net.fornwall.eclipsecoder.preferences.EclipseCoderPlugin;
 import net.fornwall.eclipsecoder.stats.CodeGenerator;
@@ -11,19 +23,21 @@ import net.fornwall.eclipsecoder.views.ProblemStatementView;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
-import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.resources.ProjectScope;
 import org.eclipse.core.resources.ResourcesPlugin;
-import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.MultiRule;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences;
 import org.eclipse.core.runtime.preferences.IScopeContext;
 import org.eclipse.swt.widgets.Display;
-import org.eclipse.ui.IWorkbench;
-import org.eclipse.ui.IWorkbenchWindow;
 import org.eclipse.ui.PlatformUI;
-import org.eclipse.ui.actions.WorkspaceModifyOperation;
 
 /**
  * Each implementation of this class provides support for using a programming language with EclipseCoder.
@@ -54,6 +68,8 @@ public abstract class LanguageSupport {
 	public static final String LANGUAGE_NAME_PYTHON = "Python";
 	public static final String LANGUAGE_NAME_VB = "VB";
 
+	private static final int TESTS_SOURCE_BUFFER_SIZE = 64 * 1024;
+
 	public static String getDefaultProjectName(ProblemStatement problemStatement, String languageName) {
 		return (problemStatement.getSolutionClassName() + "-" + languageName).toLowerCase();
 	}
@@ -69,7 +85,7 @@ public abstract class LanguageSupport {
 	/**
 	 * The file containing the solution which is to be submitted.
 	 */
-	IFile sourceFile;
+	volatile IFile sourceFile;
 
 	protected abstract CodeGenerator createCodeGenerator(ProblemStatement problemStatemnt);
 
@@ -82,84 +98,95 @@ public abstract class LanguageSupport {
 	protected abstract IFile createLanguageProject(IProject project) throws Exception;
 
 	/**
-	 * Create a new project.
+	 * Create a new project and open the solution in an editor.
 	 * 
-	 * Must be called in the SWT display thread.
+	 * May be called from any thread, and returns when the project has been created. Dialogs and opening the editor
+	 * are done in the SWT display thread. To avoid blocking the calling thread while the project is created, use
+	 * {@link #createProjectInBackground(ProblemStatement)} instead.
 	 * 
 	 * @param problemStatement
 	 *            the problem statement to create a project for
+	 * @return the created project, or null if it could not be created
 	 */
 	public final CreatedProject createProject(final ProblemStatement theProblemStatement) {
-		// this must run in the display thread
-		Assert.isNotNull(Display.getCurrent());
+		return createProject(theProblemStatement, false);
+	}
+
+	/**
+	 * Create a new project in a background job and open the solution in an editor once created.
+	 * 
+	 * May be called from any thread. Only the check for an existing project is done before returning, so the project
+	 * may not exist yet when this returns. The job holding the scheduling rule needed to create the project is
+	 * available from {@link CreatedProject#getCreationJob()}. It returns an error status without opening the editor if
+	 * the project could not be created.
+	 * 
+	 * @param problemStatement
+	 *            the problem statement to create a project for
+	 * @return the project being created, or null if it could not be created
+	 */
+	public final CreatedProject createProjectInBackground(final ProblemStatement theProblemStatement) {
+		return createProject(theProblemStatement, true);
+	}
+
+	private CreatedProject createProject(final ProblemStatement theProblemStatement, boolean inBackground) {
+		final long startTime = System.nanoTime();
 
 		try {
 			problemStatement = theProblemStatement;
 			codeGenerator = createCodeGenerator(problemStatement);
+			codeGenerator.setTestTiming(EclipseCoderPlugin.testTiming());
 
-			IWorkspaceRoot workspaceRoot = ResourcesPlugin.getWorkspace().getRoot();
-			IWorkbench workbench = PlatformUI.getWorkbench();
-			IWorkbenchWindow workbenchWindow = workbench.getActiveWorkbenchWindow();
-			final IProject myProject = workspaceRoot.getProject(getProjectName());
+			final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+			final IProject myProject = workspace.getRoot().getProject(getProjectName());
 
 			if (myProject.exists()) {
 				sourceFile = myProject.getFile(getSolutionFileName());
 				if (sourceFile.exists()) {
 					Utilities.setPerspective(getPerspectiveID());
 
-					CreatedProject result = new CreatedProject(myProject, sourceFile, getCodeEditorID());
+					CreatedProject result = new CreatedProject(myProject, sourceFile, getCodeEditorID(), startTime);
 					result.openSourceFileInEditor();
 					return result;
 				}
 
-				workbenchWindow.getShell().forceActive();
+				Utilities.runInDisplayThread(new Runnable() {
+					public void run() {
+						Utilities.getWindowShell().forceActive();
+					}
+				}, true);
 				if (Utilities.showOkCancelDialog("Malformed project exists", "The project \"" + getProjectName()
 						+ "\" already exists but lacks the expected source file \"" + getSolutionFileName()
 						+ "\"!\n\nPress Ok if you want to delete the project and create a new one.")) {
 					myProject.delete(true, true, null);
-					return createProject(theProblemStatement);
+					return createProject(theProblemStatement, inBackground);
 				}
 
 				return null;
 			}
 
-			final String HTML_FILE_PATH = theProblemStatement.getSolutionClassName() + ".html";
+			// the handle is known before creation - replaced with the file returned by createLanguageProject() below
+			sourceFile = myProject.getFile(getSolutionFileName());
+			final CreatedProject result = new CreatedProject(myProject, sourceFile, getCodeEditorID(), startTime);
+			final ISchedulingRule rule = MultiRule.combine(workspace.getRuleFactory().createRule(myProject), myProject);
 
-			WorkspaceModifyOperation projectCreationOperation = new WorkspaceModifyOperation() {
-				@Override
-				protected void execute(IProgressMonitor monitor) throws CoreException, InvocationTargetException,
-						InterruptedException {
-					myProject.create(null);
-					myProject.open(null);
-
-					IFile htmlProblemStatementFile = myProject.getFile(HTML_FILE_PATH);
-					htmlProblemStatementFile.create(new ByteArrayInputStream(getHtmlDescription().getBytes()), true,
-							null);
-					// setting this property before activating the new project
-					// so that the problem statement view gets updated correctly
-
-					EclipseCoderPlugin.getProjectPrefs(myProject).put(ProblemStatement.XML_PREFS_KEY,
-							problemStatement.toXML());
+			if (!inBackground) {
+				IStatus status = createAndOpenProject(myProject, result, rule, null);
+				if (!status.isOK()) {
+					throw new CoreException(status);
 				}
-			};
-			projectCreationOperation.run(null);
-
-			// below prefs must be set outside the projectCreationOperation?
-			try {
-				IScopeContext context = new ProjectScope(myProject);
-				IEclipsePreferences prefs = context.getNode(EclipseCoderPlugin.PLUGIN_ID);
-				prefs.put(ProblemStatementView.PROBLEM_HTML_PATH_PREFS_KEY, myProject.getFile(HTML_FILE_PATH)
-						.getProjectRelativePath().toPortableString());
-				prefs.flush();
-				sourceFile = createLanguageProject(myProject);
-			} catch (Exception e) {
-				Utilities.showException(e);
+				return result;
 			}
 
-			Utilities.setPerspective(getPerspectiveID());
-
-			CreatedProject result = new CreatedProject(myProject, sourceFile, getCodeEditorID());
-			result.openSourceFileInEditor();
+			Job creationJob = new Job("Creating project " + myProject.getName()) {
+				@Override
+				protected IStatus run(IProgressMonitor monitor) {
+					return createAndOpenProject(myProject, result, rule, monitor);
+				}
+			};
+			creationJob.setRule(rule);
+			creationJob.setPriority(Job.INTERACTIVE);
+			result.creationJob = creationJob;
+			creationJob.schedule();
 			return result;
 		} catch (Exception e) {
 			Utilities.showException(e);
@@ -167,6 +194,92 @@ public abstract class LanguageSupport {
 		}
 	}
 
+	/**
+	 * Create and configure a project, and open the solution in an editor if successful.
+	 * 
+	 * @return the status of the creation, where an error status means that no editor was opened
+	 */
+	private IStatus createAndOpenProject(final IProject project, CreatedProject result, ISchedulingRule rule,
+			IProgressMonitor monitor) {
+		try {
+			project.getWorkspace().run(new IWorkspaceRunnable() {
+				public void run(IProgressMonitor runnableMonitor) throws CoreException {
+					createProjectResources(project);
+				}
+			}, rule, IWorkspace.AVOID_UPDATE, monitor);
+		} catch (CoreException e) {
+			return e.getStatus();
+		}
+
+		// below prefs must be set outside the workspace runnable?
+		try {
+			configureProject(project);
+			result.sourceFile = sourceFile;
+		} catch (Exception e) {
+			return new Status(IStatus.ERROR, EclipseCoderPlugin.PLUGIN_ID, IStatus.OK, "Could not configure project "
+					+ project.getName() + ": " + e.getMessage(), e);
+		}
+
+		Utilities.setPerspective(getPerspectiveID());
+		result.openSourceFileInEditor();
+		return Status.OK_STATUS;
+	}
+
+	/**
+	 * Create a project without any user interaction. Used by {@link CreateProjectsJob} inside a workspace runnable.
+	 * 
+	 * @param theProblemStatement
+	 *            the problem statement to create a project for
+	 * @return the created project, or null if a project lacking the expected source file already exists
+	 */
+	final CreatedProject createProjectUnattended(ProblemStatement theProblemStatement) throws Exception {
+		long startTime = System.nanoTime();
+		problemStatement = theProblemStatement;
+		codeGenerator = createCodeGenerator(problemStatement);
+		codeGenerator.setTestTiming(EclipseCoderPlugin.testTiming());
+
+		IProject project = ResourcesPlugin.getWorkspace().getRoot().getProject(getProjectName());
+		if (project.exists()) {
+			sourceFile = project.getFile(getSolutionFileName());
+			return sourceFile.exists() ? new CreatedProject(project, sourceFile, getCodeEditorID(), startTime) : null;
+		}
+
+		createProjectResources(project);
+		configureProject(project);
+		return new CreatedProject(project, sourceFile, getCodeEditorID(), startTime);
+	}
+
+	/**
+	 * Create and open the project and add the problem statement files to it.
+	 */
+	private void createProjectResources(IProject project) throws CoreException {
+		project.create(null);
+		project.open(null);
+
+		IFile htmlProblemStatementFile = project.getFile(getHtmlFilePath());
+		htmlProblemStatementFile.create(new ByteArrayInputStream(getHtmlDescription().getBytes()), true, null);
+		// setting this property before activating the new project
+		// so that the problem statement view gets updated correctly
+
+		EclipseCoderPlugin.storeProblemStatement(project, problemStatement);
+	}
+
+	/**
+	 * Store the project preferences and let the implementation create the language-specific parts of the project.
+	 */
+	private void configureProject(IProject project) throws Exception {
+		IScopeContext context = new ProjectScope(project);
+		IEclipsePreferences prefs = context.getNode(EclipseCoderPlugin.PLUGIN_ID);
+		prefs.put(ProblemStatementView.PROBLEM_HTML_PATH_PREFS_KEY, project.getFile(getHtmlFilePath())
+				.getProjectRelativePath().toPortableString());
+		prefs.flush();
+		sourceFile = createLanguageProject(project);
+	}
+
+	private String getHtmlFilePath() {
+		return problemStatement.getSolutionClassName() + ".html";
+	}
+
 	/**
 	 * Implementations should return the ID of the editor that should be used to open the problem statement source code
 	 * file.
@@ -185,18 +298,17 @@ public abstract class LanguageSupport {
 	 * Get the problem description in HTML form. This varies for each programming language, but different subclasses of
 	 * this class does not need to reimplement this method as it takes language into account.
 	 * 
+	 * Called once when the problem statement file of a new project is created.
+	 * 
 	 * @return the HTML description of the problem statement
 	 */
 	String getHtmlDescription() {
-		try {
-			// change white on black to black on white
-			return problemStatement.getHtmlDescription().replaceAll("bgcolor=\"#000000\"", "")
-					.replaceAll("text=\"#ffffff\"", "");
-		} catch (Exception e) {
-			// Very unlikely
-			Utilities.showException(e);
-			return "<html><body><h1>Error rendering to HTML:</h1><pre>" + e.getMessage() + "</pre></body></html>";
+		String htmlDescription = problemStatement.getHtmlDescription();
+		if (htmlDescription == null) {
+			return "<html><body><h1>Error rendering to HTML:</h1><pre>No problem description</pre></body></html>";
 		}
+		// change white on black to black on white
+		return htmlDescription.replace("bgcolor=\"#000000\"", "").replace("text=\"#ffffff\"", "");
 	}
 
 	public final String getInitialSource() {
@@ -279,6 +391,71 @@ public abstract class LanguageSupport {
 		return getter.submission;
 	}
 
+	/**
+	 * Create or replace a file with the test suite source of the code generator. The source is streamed to the file
+	 * through {@link CodeGenerator#writeTestsSource(Appendable)} from another thread, which avoids building the whole
+	 * source in memory for problems with many large test cases.
+	 * 
+	 * @param file
+	 *            The file to write the test suite source to.
+	 */
+	protected final void writeTestsFile(IFile file) throws CoreException, IOException {
+		Charset charset = Charset.forName(file.exists() ? file.getCharset() : file.getParent().getDefaultCharset());
+		try (InputStream contents = openTestsSource(charset)) {
+			if (file.exists()) {
+				file.setContents(contents, true, false, null);
+			} else {
+				file.create(contents, true, null);
+			}
+		}
+	}
+
+	/**
+	 * Open a stream of the test suite source, which is written to it by a new thread. The stream fails at its end if
+	 * the source could not be written, and closing it stops the thread.
+	 */
+	private InputStream openTestsSource(final Charset charset) throws IOException {
+		final PipedInputStream in = new PipedInputStream(TESTS_SOURCE_BUFFER_SIZE);
+		final PipedOutputStream out = new PipedOutputStream(in);
+		final FutureTask<Void> writing = new FutureTask<Void>(new Callable<Void>() {
+			public Void call() throws IOException {
+				try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, charset))) {
+					getCodeGenerator().writeTestsSource(writer);
+				}
+				return null;
+			}
+		});
+		Thread writer = new Thread(writing, "EclipseCoder tests source writer");
+		writer.setDaemon(true);
+		writer.start();
+
+		return new FilterInputStream(in) {
+			private int checkEnd(int read) throws IOException {
+				if (read < 0) {
+					try {
+						writing.get();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException();
+					} catch (ExecutionException e) {
+						throw new IOException("Could not generate the tests source", e.getCause());
+					}
+				}
+				return read;
+			}
+
+			@Override
+			public int read() throws IOException {
+				return checkEnd(super.read());
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return checkEnd(super.read(b, off, len));
+			}
+		};
+	}
+
 	public final void setProjectName(String projectName) {
 		this.projectName = projectName;
 	}
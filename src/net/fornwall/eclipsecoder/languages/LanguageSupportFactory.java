@@ -2,19 +2,118 @@ package net.fornwall.eclipsecoder.languages;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.fornwall.eclipsecoder.preferences.EclipseCoderPlugin;
 
 import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IExecutableExtension;
 import org.eclipse.core.runtime.IExtensionPoint;
 import org.eclipse.core.runtime.IExtensionRegistry;
+import org.eclipse.core.runtime.IRegistryChangeEvent;
+import org.eclipse.core.runtime.IRegistryChangeListener;
 import org.eclipse.core.runtime.Platform;
 
+/**
+ * Factory for the language supports contributed by plug-ins.
+ * 
+ * The contributed languages are indexed once and the index is dropped when the extensions of the language support
+ * extension point change. The class of a language support is loaded when a language support for the language is
+ * first created, later language supports are created directly from that class.
+ */
 public class LanguageSupportFactory {
 
+	/**
+	 * A contributed language support.
+	 */
+	private static class Language {
+		final IConfigurationElement element;
+
+		/** An instance created ahead of time, handed out by the next call to {@link #create()}. */
+		final AtomicReference<LanguageSupport> preloaded = new AtomicReference<LanguageSupport>();
+
+		/** The class to create further instances from, or null until the first instance has been created. */
+		volatile Class<? extends LanguageSupport> supportClass;
+
+		Language(IConfigurationElement element) {
+			this.element = element;
+		}
+
+		LanguageSupport create() throws Exception {
+			LanguageSupport result = preloaded.getAndSet(null);
+			if (result != null) {
+				return result;
+			}
+			Class<? extends LanguageSupport> cached = supportClass;
+			if (cached != null) {
+				return cached.newInstance();
+			}
+			result = (LanguageSupport) element.createExecutableExtension("class");
+			if (!(result instanceof IExecutableExtension)) {
+				// instances initialized from the configuration element need to be created through it
+				supportClass = result.getClass();
+			}
+			return result;
+		}
+
+		void preload() throws Exception {
+			if (supportClass == null && preloaded.get() == null) {
+				preloaded.compareAndSet(null, create());
+			}
+		}
+	}
+
+	/**
+	 * Immutable index of the contributed languages.
+	 */
+	private static class LanguageIndex {
+		final Map<String, Language> languages;
+
+		final List<String> languageNames;
+
+		LanguageIndex(IConfigurationElement[] elements) {
+			Map<String, Language> map = new HashMap<String, Language>();
+			List<String> names = new ArrayList<String>();
+			for (IConfigurationElement element : elements) {
+				String supportedLanguage = element.getAttribute(LANGUAGE_ATTRIBUTE_NAME);
+				names.add(supportedLanguage);
+				if (!map.containsKey(supportedLanguage)) {
+					// the first contribution for a language is used
+					map.put(supportedLanguage, new Language(element));
+				}
+			}
+			Collections.sort(names);
+			languages = map;
+			languageNames = Collections.unmodifiableList(names);
+		}
+	}
+
 	private static final String LANGUAGE_ATTRIBUTE_NAME = "language";
 
 	public static final String LANGUAGE_EXTENSION_SUPPORT_ID = "net.fornwall.eclipsecoder.languagesupport";
 
+	private static volatile LanguageIndex index;
+
+	private static final IRegistryChangeListener registryChangeListener = new IRegistryChangeListener() {
+		public void registryChanged(IRegistryChangeEvent event) {
+			if (event.getExtensionDeltas(EclipseCoderPlugin.PLUGIN_ID, "languagesupport").length > 0) {
+				synchronized (LanguageSupportFactory.class) {
+					index = null;
+				}
+			}
+		}
+	};
+
+	/**
+	 * Start dropping the language index when language support plug-ins are added or removed.
+	 */
+	public static void addRegistryChangeListener() {
+		Platform.getExtensionRegistry().addRegistryChangeListener(registryChangeListener, EclipseCoderPlugin.PLUGIN_ID);
+	}
+
 	/**
 	 * Create a <code>LanguageSupport</code> instance for the given programming language.
 	 * 
@@ -23,15 +122,21 @@ public class LanguageSupportFactory {
 	 * @return a language support if one is found, or null if no one could be found
 	 */
 	public static LanguageSupport createLanguageSupport(String languageName) throws Exception {
-		for (IConfigurationElement element : getLanguageExtensions()) {
-			String supportedLanguage = element.getAttribute(LANGUAGE_ATTRIBUTE_NAME);
-			if (supportedLanguage.equals(languageName)) {
-				LanguageSupport result = (LanguageSupport) element.createExecutableExtension("class");
-				return result;
+		Language language = getIndex().languages.get(languageName);
+		return (language == null) ? null : language.create();
+	}
+
+	private static LanguageIndex getIndex() {
+		LanguageIndex result = index;
+		if (result == null) {
+			synchronized (LanguageSupportFactory.class) {
+				result = index;
+				if (result == null) {
+					index = result = new LanguageIndex(getLanguageExtensions());
+				}
 			}
 		}
-
-		return null;
+		return result;
 	}
 
 	private static IConfigurationElement[] getLanguageExtensions() {
@@ -40,21 +145,34 @@ public class LanguageSupportFactory {
 		return extensionPoint.getConfigurationElements();
 	}
 
+	/**
+	 * Load the language support class of a language ahead of the first project creation. The instance created for this
+	 * is returned by the next call to {@link #createLanguageSupport(String)} for the language.
+	 * 
+	 * @param languageName
+	 *            The name of the programming language.
+	 */
+	public static void preloadLanguageSupport(String languageName) throws Exception {
+		Language language = getIndex().languages.get(languageName);
+		if (language != null) {
+			language.preload();
+		}
+	}
+
+	public static void removeRegistryChangeListener() {
+		Platform.getExtensionRegistry().removeRegistryChangeListener(registryChangeListener);
+		index = null;
+	}
+
 	/**
 	 * Get all supported languages (where support for a programming language is given by a plug-in). The names of the
 	 * returned languages can be used to create a <code>LanguageSupport</code> instance using
 	 * {@link #createLanguageSupport(String)}.
 	 * 
-	 * @return a sorted list with names of all supported languages
+	 * @return an unmodifiable sorted list with names of all supported languages
 	 */
 	public static List<String> supportedLanguages() {
-		List<String> result = new ArrayList<String>();
-		for (IConfigurationElement element : getLanguageExtensions()) {
-			String supportedLanguage = element.getAttribute(LANGUAGE_ATTRIBUTE_NAME);
-			result.add(supportedLanguage);
-		}
-		Collections.sort(result);
-		return result;
+		return getIndex().languageNames;
 	}
 
 	private LanguageSupportFactory() {
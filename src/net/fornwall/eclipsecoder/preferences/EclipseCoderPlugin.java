@@ -1,13 +1,34 @@
 package net.fornwall.eclipsecoder.preferences;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import net.fornwall.eclipsecoder.languages.LanguageSupportFactory;
 import net.fornwall.eclipsecoder.stats.ProblemStatement;
+import net.fornwall.eclipsecoder.stats.ProblemStatementFormat;
+import net.fornwall.eclipsecoder.stats.TestTiming;
+import net.fornwall.eclipsecoder.util.BuildAndRunJob;
 import net.fornwall.eclipsecoder.util.Utilities;
+import net.fornwall.eclipsecoder.util.WarmTestRunner;
 
+import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.ProjectScope;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences;
 import org.eclipse.core.runtime.preferences.IScopeContext;
 import org.eclipse.jface.preference.IPreferenceNode;
@@ -16,6 +37,7 @@ import org.eclipse.jface.preference.PreferenceDialog;
 import org.eclipse.jface.preference.PreferenceManager;
 import org.eclipse.jface.preference.PreferenceNode;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
+import org.osgi.framework.BundleContext;
 
 public class EclipseCoderPlugin extends AbstractUIPlugin {
 
@@ -23,8 +45,34 @@ public class EclipseCoderPlugin extends AbstractUIPlugin {
 
 	public static final String PLUGIN_ID = "net.fornwall.eclipsecoder";
 
+	/**
+	 * Integer specifying the number of hours after which cached applet jars are checked for updates.
+	 */
+	public static final String PREFERENCE_APPLET_CACHE_TTL = "appletCacheTtl";
+
+	private static final int DEFAULT_APPLET_CACHE_TTL = 24;
+
+	/**
+	 * Boolean specifying if solutions should be run as plain processes with the output shown in a console, instead of
+	 * through the debug framework.
+	 */
+	public static final String PREFERENCE_FAST_RUN = "fastRun";
+
 	public static final String PREFERENCE_LANGUAGE = "languagePreference";
 
+	/**
+	 * Integer specifying the percentage of the TopCoder time limit above which a test case is flagged as slow.
+	 */
+	public static final String PREFERENCE_SLOW_TEST_PERCENT = "slowTestPercent";
+
+	private static final int DEFAULT_SLOW_TEST_PERCENT = 50;
+
+	/**
+	 * Boolean specifying if the support for the preferred language should be loaded in the background when the plug-in
+	 * is started.
+	 */
+	public static final String PREFERENCE_PRELOAD_LANGUAGE = "preloadLanguage";
+
 	/**
 	 * Boolean specifying if user should be automatically logged in when starting TopCoder arena applet.
 	 */
@@ -34,6 +82,32 @@ public class EclipseCoderPlugin extends AbstractUIPlugin {
 
 	public static final String PREFERENCE_TC_USERNAME = "tcUserName";
 
+	/**
+	 * Integer specifying the number of seconds after which a test runner process stuck on a test case is killed.
+	 */
+	public static final String PREFERENCE_TEST_TIMEOUT = "testTimeout";
+
+	private static final int DEFAULT_TEST_TIMEOUT = 10;
+
+	/**
+	 * Integer specifying the number of test runner processes running test cases in parallel.
+	 */
+	public static final String PREFERENCE_TEST_WORKERS = "testWorkers";
+
+	private static final int DEFAULT_TEST_WORKERS = 1;
+
+	/**
+	 * Integer specifying the number of untimed runs of each test case before its timed run.
+	 */
+	public static final String PREFERENCE_WARM_UP_RUNS = "warmUpRuns";
+
+	private static final int DEFAULT_WARM_UP_RUNS = 1;
+
+	/**
+	 * Boolean specifying if test cases should be run in a test runner process kept alive per project.
+	 */
+	public static final String PREFERENCE_WARM_TEST_RUNNER = "warmTestRunner";
+
 	/**
 	 * Show a message to the user specifying that a TopCoder member account is needed. Follow this by opening the
 	 * preferences page allowing him to enter information about this account.
@@ -60,14 +134,36 @@ public class EclipseCoderPlugin extends AbstractUIPlugin {
 		return instance;
 	}
 
+	/**
+	 * Get the problem statement associated with a project.
+	 * 
+	 * Decoded statements are cached until the state file changes or the project is closed or deleted, so the returned
+	 * instance is shared between callers and should not be modified. The statement of a project created by an older
+	 * version is decoded from the XML in the project preferences until the project has been migrated by a background
+	 * job, so this never modifies the workspace.
+	 * 
+	 * @return the problem statement, or null if the project is not associated with one
+	 */
 	public static ProblemStatement getProblemStatement(IProject project) {
 		IEclipsePreferences prefs = getProjectPrefs(project);
 		if (prefs == null)
 			return null;
-		String xmlString = prefs.get(ProblemStatement.XML_PREFS_KEY, null);
-		if (xmlString == null)
-			return null;
 		try {
+			String statePath = prefs.get(ProblemStatement.STATE_PATH_PREFS_KEY, null);
+			if (statePath != null) {
+				IFile stateFile = project.getFile(Path.fromPortableString(statePath));
+				long modificationStamp = stateFile.getModificationStamp();
+				ProblemStatement result = instance.problemStatementCache.get(project, statePath, modificationStamp);
+				if (result == null) {
+					result = readProblemStatement(stateFile);
+					instance.problemStatementCache.put(project, statePath, modificationStamp, result);
+				}
+				return result;
+			}
+
+			String xmlString = prefs.get(ProblemStatement.XML_PREFS_KEY, null);
+			if (xmlString == null)
+				return null;
 			return ProblemStatement.fromXML(xmlString);
 		} catch (Exception e) {
 			Utilities.showException(e);
@@ -75,12 +171,70 @@ public class EclipseCoderPlugin extends AbstractUIPlugin {
 		}
 	}
 
+	/**
+	 * Check if a project is associated with a problem statement without decoding it.
+	 */
+	public static boolean hasProblemStatement(IProject project) {
+		if (project == null)
+			return false;
+		IEclipsePreferences prefs = getProjectPrefs(project);
+		return prefs.get(ProblemStatement.STATE_PATH_PREFS_KEY, null) != null
+				|| prefs.get(ProblemStatement.XML_PREFS_KEY, null) != null;
+	}
+
+	private static ProblemStatement readProblemStatement(IFile file) throws CoreException, IOException {
+		IPath location = file.getLocation();
+		if (location != null && location.toFile().isFile()) {
+			try (FileChannel channel = FileChannel.open(location.toFile().toPath(), StandardOpenOption.READ)) {
+				return ProblemStatementFormat.read(channel);
+			}
+		}
+		try (ReadableByteChannel channel = Channels.newChannel(file.getContents())) {
+			return ProblemStatementFormat.read(channel);
+		}
+	}
+
+	/**
+	 * Write the state file of a problem statement next to the HTML problem statement and reference it from the project
+	 * preferences. The preferences are not flushed.
+	 * 
+	 * @see ProblemStatement#STATE_PATH_PREFS_KEY
+	 */
+	public static void storeProblemStatement(IProject project, ProblemStatement statement) throws CoreException {
+		IFile file = project.getFile(statement.getSolutionClassName() + "." + ProblemStatementFormat.FILE_EXTENSION);
+		InputStream contents = new ByteArrayInputStream(ProblemStatementFormat.toBytes(statement));
+		if (file.exists()) {
+			file.setContents(contents, true, false, null);
+		} else {
+			file.create(contents, true, null);
+		}
+
+		IEclipsePreferences prefs = getProjectPrefs(project);
+		prefs.put(ProblemStatement.STATE_PATH_PREFS_KEY, file.getProjectRelativePath().toPortableString());
+		prefs.remove(ProblemStatement.XML_PREFS_KEY);
+	}
+
 	public static IEclipsePreferences getProjectPrefs(IProject project) {
 		IScopeContext context = new ProjectScope(project);
 		IEclipsePreferences prefs = context.getNode(EclipseCoderPlugin.PLUGIN_ID);
 		return prefs;
 	}
 
+	/**
+	 * @return the time in milliseconds during which cached applet jars are used without checking for updates
+	 */
+	public static long appletCacheTimeToLive() {
+		int hours = instance.getPreferenceStore().getInt(EclipseCoderPlugin.PREFERENCE_APPLET_CACHE_TTL);
+		return TimeUnit.HOURS.toMillis(Math.max(0, hours));
+	}
+
+	/**
+	 * @return true if launchers supporting it should start solutions directly instead of through the debug framework
+	 */
+	public static boolean fastRun() {
+		return instance.getPreferenceStore().getBoolean(EclipseCoderPlugin.PREFERENCE_FAST_RUN);
+	}
+
 	public static boolean isTcAccountSpecified() {
 		String user = tcUserName();
 		String pass = tcPassword();
@@ -95,17 +249,37 @@ public class EclipseCoderPlugin extends AbstractUIPlugin {
 			return supported.get(0);
 		}
 		// make sure preferred is still supported:
-		for (String s : supported) {
-			if (s.equals(preferred))
-				return preferred;
-		}
-		return supported.get(0);
+		return supported.contains(preferred) ? preferred : supported.get(0);
 	}
 
 	public static boolean tcAutoLogon() {
 		return instance.getPreferenceStore().getBoolean(EclipseCoderPlugin.PREFERENCE_TC_AUTOLOGON);
 	}
 
+	/**
+	 * @return how test cases should be timed according to the preferences
+	 */
+	public static TestTiming testTiming() {
+		int warmUpRuns = instance.getPreferenceStore().getInt(EclipseCoderPlugin.PREFERENCE_WARM_UP_RUNS);
+		int slowPercent = instance.getPreferenceStore().getInt(EclipseCoderPlugin.PREFERENCE_SLOW_TEST_PERCENT);
+		return new TestTiming(Math.max(0, warmUpRuns), Math.max(1, slowPercent) / 100.0);
+	}
+
+	/**
+	 * @return the time in milliseconds after which a test runner process stuck on a test case is killed
+	 */
+	public static long testTimeoutMillis() {
+		int seconds = instance.getPreferenceStore().getInt(EclipseCoderPlugin.PREFERENCE_TEST_TIMEOUT);
+		return TimeUnit.SECONDS.toMillis(Math.max(1, seconds));
+	}
+
+	/**
+	 * @return the number of test runner processes running test cases of a project in parallel
+	 */
+	public static int testWorkers() {
+		return Math.max(1, instance.getPreferenceStore().getInt(EclipseCoderPlugin.PREFERENCE_TEST_WORKERS));
+	}
+
 	public static String tcPassword() {
 		return instance.getPreferenceStore().getString(EclipseCoderPlugin.PREFERENCE_TC_PASSWORD);
 	}
@@ -114,7 +288,74 @@ public class EclipseCoderPlugin extends AbstractUIPlugin {
 		return instance.getPreferenceStore().getString(EclipseCoderPlugin.PREFERENCE_TC_USERNAME);
 	}
 
+	/**
+	 * @return true if language plug-ins should run test cases through {@link WarmTestRunner}
+	 */
+	public static boolean warmTestRunner() {
+		return instance.getPreferenceStore().getBoolean(EclipseCoderPlugin.PREFERENCE_WARM_TEST_RUNNER);
+	}
+
+	private final ProblemStatementCache problemStatementCache = new ProblemStatementCache();
+
+	private final ProblemStatementMigration problemStatementMigration = new ProblemStatementMigration();
+
 	public EclipseCoderPlugin() {
 		EclipseCoderPlugin.instance = this;
 	}
+
+	@Override
+	public void start(BundleContext context) throws Exception {
+		super.start(context);
+		getPreferenceStore().setDefault(PREFERENCE_APPLET_CACHE_TTL, DEFAULT_APPLET_CACHE_TTL);
+		getPreferenceStore().setDefault(PREFERENCE_PRELOAD_LANGUAGE, true);
+		getPreferenceStore().setDefault(PREFERENCE_WARM_UP_RUNS, DEFAULT_WARM_UP_RUNS);
+		getPreferenceStore().setDefault(PREFERENCE_SLOW_TEST_PERCENT, DEFAULT_SLOW_TEST_PERCENT);
+		getPreferenceStore().setDefault(PREFERENCE_TEST_TIMEOUT, DEFAULT_TEST_TIMEOUT);
+		getPreferenceStore().setDefault(PREFERENCE_TEST_WORKERS, DEFAULT_TEST_WORKERS);
+		LanguageSupportFactory.addRegistryChangeListener();
+		if (getPreferenceStore().getBoolean(PREFERENCE_PRELOAD_LANGUAGE)) {
+			Job preloadJob = new Job("Loading language support") {
+				@Override
+				protected IStatus run(IProgressMonitor monitor) {
+					try {
+						if (!LanguageSupportFactory.supportedLanguages().isEmpty()) {
+							LanguageSupportFactory.preloadLanguageSupport(preferedLanguage());
+						}
+					} catch (Exception e) {
+						// reported when creating a project for the language
+					}
+					return Status.OK_STATUS;
+				}
+			};
+			preloadJob.setSystem(true);
+			preloadJob.setPriority(Job.DECORATE);
+			preloadJob.schedule();
+		}
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(problemStatementCache,
+				ProblemStatementCache.EVENT_MASK);
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(problemStatementMigration,
+				ProblemStatementMigration.EVENT_MASK);
+		Job migrationJob = new Job("Migrating problem statements") {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				problemStatementMigration.migrateOpenProjects();
+				return Status.OK_STATUS;
+			}
+		};
+		migrationJob.setSystem(true);
+		migrationJob.schedule();
+		WarmTestRunner.addResourceChangeListener();
+		BuildAndRunJob.addResourceChangeListener();
+	}
+
+	@Override
+	public void stop(BundleContext context) throws Exception {
+		LanguageSupportFactory.removeRegistryChangeListener();
+		BuildAndRunJob.removeResourceChangeListener();
+		WarmTestRunner.removeResourceChangeListener();
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(problemStatementMigration);
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(problemStatementCache);
+		problemStatementCache.clear();
+		super.stop(context);
+	}
 }
@@ -7,6 +7,7 @@ import net.fornwall.eclipsecoder.languages.LanguageSupportFactory;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.jface.preference.BooleanFieldEditor;
 import org.eclipse.jface.preference.FieldEditorPreferencePage;
+import org.eclipse.jface.preference.IntegerFieldEditor;
 import org.eclipse.jface.preference.RadioGroupFieldEditor;
 import org.eclipse.jface.preference.StringFieldEditor;
 import org.eclipse.ui.IWorkbench;
@@ -48,6 +49,10 @@ public class PreferencesPage extends FieldEditorPreferencePage implements IWorkb
 		autoLogonEditor = new BooleanFieldEditor(EclipseCoderPlugin.PREFERENCE_TC_AUTOLOGON,
 				"Auto-logon when starting the TopCoder applet", getFieldEditorParent());
 		addField(autoLogonEditor);
+		IntegerFieldEditor cacheTtlEditor = new IntegerFieldEditor(EclipseCoderPlugin.PREFERENCE_APPLET_CACHE_TTL,
+				"Hours between checks for applet updates", getFieldEditorParent());
+		cacheTtlEditor.setValidRange(0, 24 * 365);
+		addField(cacheTtlEditor);
 		addField(new SpacerFieldEditor(getFieldEditorParent()));
 
 		List<String> languages = LanguageSupportFactory.supportedLanguages();
@@ -57,6 +62,29 @@ public class PreferencesPage extends FieldEditorPreferencePage implements IWorkb
 		}
 		addField(new RadioGroupFieldEditor(EclipseCoderPlugin.PREFERENCE_LANGUAGE, "Preferred programming language", 1,
 				labelAndValues, getFieldEditorParent(), true));
+		addField(new BooleanFieldEditor(EclipseCoderPlugin.PREFERENCE_PRELOAD_LANGUAGE,
+				"Load support for the preferred language on startup", getFieldEditorParent()));
+		IntegerFieldEditor warmUpRunsEditor = new IntegerFieldEditor(EclipseCoderPlugin.PREFERENCE_WARM_UP_RUNS,
+				"Untimed runs of each test case before timing it", getFieldEditorParent());
+		warmUpRunsEditor.setValidRange(0, 100);
+		addField(warmUpRunsEditor);
+		IntegerFieldEditor slowTestEditor = new IntegerFieldEditor(EclipseCoderPlugin.PREFERENCE_SLOW_TEST_PERCENT,
+				"Flag test cases using more than this percentage of the time limit", getFieldEditorParent());
+		slowTestEditor.setValidRange(1, 100);
+		addField(slowTestEditor);
+		addField(new BooleanFieldEditor(EclipseCoderPlugin.PREFERENCE_WARM_TEST_RUNNER,
+				"Run test cases in a test runner kept alive per project", getFieldEditorParent()));
+		IntegerFieldEditor testWorkersEditor = new IntegerFieldEditor(EclipseCoderPlugin.PREFERENCE_TEST_WORKERS,
+				"Test runner processes running test cases in parallel", getFieldEditorParent());
+		testWorkersEditor.setValidRange(1, 64);
+		addField(testWorkersEditor);
+		IntegerFieldEditor testTimeoutEditor = new IntegerFieldEditor(EclipseCoderPlugin.PREFERENCE_TEST_TIMEOUT,
+				"Seconds before a test runner stuck on a test case is killed", getFieldEditorParent());
+		testTimeoutEditor.setValidRange(1, 3600);
+		addField(testTimeoutEditor);
+		addField(new BooleanFieldEditor(EclipseCoderPlugin.PREFERENCE_FAST_RUN,
+				"Run solutions directly with the output in a console instead of through the debugger",
+				getFieldEditorParent()));
 	}
 
 	@Override
@@ -0,0 +1,77 @@
+package net.fornwall.eclipsecoder.preferences;
+
+import java.lang.ref.SoftReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.fornwall.eclipsecoder.stats.ProblemStatement;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+
+/**
+ * Per-project cache of decoded problem statements used by {@link EclipseCoderPlugin#getProblemStatement(IProject)}.
+ *
+ * An entry is only valid as long as the state file path and its modification stamp are unchanged. Statements are held
+ * through soft references so that the garbage collector may reclaim them, and entries are dropped when their project is
+ * closed or deleted.
+ */
+class ProblemStatementCache implements IResourceChangeListener {
+
+	private static class Entry {
+		final long modificationStamp;
+
+		final SoftReference<ProblemStatement> statement;
+
+		final String statePath;
+
+		Entry(String statePath, long modificationStamp, ProblemStatement statement) {
+			this.statePath = statePath;
+			this.modificationStamp = modificationStamp;
+			this.statement = new SoftReference<ProblemStatement>(statement);
+		}
+	}
+
+	/** The events after which cached statements of a project are no longer needed. */
+	static final int EVENT_MASK = IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.PRE_DELETE;
+
+	private final Map<IProject, Entry> entries = new ConcurrentHashMap<IProject, Entry>();
+
+	void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Get the cached statement for a project.
+	 *
+	 * @return the cached statement, or null if none is cached for the given state file path and modification stamp
+	 */
+	ProblemStatement get(IProject project, String statePath, long modificationStamp) {
+		Entry entry = entries.get(project);
+		if (entry == null) {
+			return null;
+		}
+		ProblemStatement statement = entry.statement.get();
+		if (statement == null || entry.modificationStamp != modificationStamp || !entry.statePath.equals(statePath)) {
+			entries.remove(project);
+			return null;
+		}
+		return statement;
+	}
+
+	void put(IProject project, String statePath, long modificationStamp, ProblemStatement statement) {
+		if (modificationStamp == IResource.NULL_STAMP) {
+			return;
+		}
+		entries.put(project, new Entry(statePath, modificationStamp, statement));
+	}
+
+	public void resourceChanged(IResourceChangeEvent event) {
+		IResource resource = event.getResource();
+		if (resource instanceof IProject) {
+			entries.remove(resource);
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package net.fornwall.eclipsecoder.preferences;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.fornwall.eclipsecoder.stats.ProblemStatement;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.resources.WorkspaceJob;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+
+/**
+ * Migrates projects created by older versions, which store the problem statement as XML in the project preferences
+ * under {@link ProblemStatement#XML_PREFS_KEY}, to a state file written by
+ * {@link EclipseCoderPlugin#storeProblemStatement(IProject, ProblemStatement)}.
+ *
+ * Each project is migrated in a {@link WorkspaceJob} with the project as scheduling rule, when the plug-in is started
+ * for the projects open at that time and later when a project is opened or added. A failed migration is logged and
+ * retried the next time the project is opened, while {@link EclipseCoderPlugin#getProblemStatement(IProject)} keeps
+ * decoding the XML.
+ */
+class ProblemStatementMigration implements IResourceChangeListener {
+
+	/** The events after which a project may need to be migrated. */
+	static final int EVENT_MASK = IResourceChangeEvent.POST_CHANGE;
+
+	/** The projects with a migration job scheduled or running. */
+	private final Set<IProject> scheduled = Collections.newSetFromMap(new ConcurrentHashMap<IProject, Boolean>());
+
+	/**
+	 * Schedule the migration of all open projects which need it.
+	 */
+	void migrateOpenProjects() {
+		for (IProject project : ResourcesPlugin.getWorkspace().getRoot().getProjects()) {
+			migrate(project);
+		}
+	}
+
+	/**
+	 * Schedule the migration of a project unless it is closed, does not need it or is already being migrated.
+	 */
+	void migrate(final IProject project) {
+		if (!needsMigration(project) || !scheduled.add(project)) {
+			return;
+		}
+		WorkspaceJob job = new WorkspaceJob("Migrating problem statement of " + project.getName()) {
+			@Override
+			public IStatus runInWorkspace(IProgressMonitor monitor) {
+				try {
+					if (needsMigration(project)) {
+						IEclipsePreferences prefs = EclipseCoderPlugin.getProjectPrefs(project);
+						String xmlString = prefs.get(ProblemStatement.XML_PREFS_KEY, null);
+						EclipseCoderPlugin.storeProblemStatement(project, ProblemStatement.fromXML(xmlString));
+						prefs.flush();
+					}
+					return Status.OK_STATUS;
+				} catch (Exception e) {
+					// the xml preference is kept and used until the project is opened again
+					return new Status(IStatus.WARNING, EclipseCoderPlugin.PLUGIN_ID, IStatus.OK,
+							"Could not migrate problem statement of project " + project.getName(), e);
+				} finally {
+					scheduled.remove(project);
+				}
+			}
+		};
+		job.setRule(project);
+		job.setSystem(true);
+		job.schedule();
+	}
+
+	private static boolean needsMigration(IProject project) {
+		return project.isOpen()
+				&& EclipseCoderPlugin.getProjectPrefs(project).get(ProblemStatement.XML_PREFS_KEY, null) != null;
+	}
+
+	public void resourceChanged(IResourceChangeEvent event) {
+		IResourceDelta delta = event.getDelta();
+		if (delta == null) {
+			return;
+		}
+		for (IResourceDelta projectDelta : delta.getAffectedChildren(IResourceDelta.ADDED | IResourceDelta.CHANGED)) {
+			boolean opened = (projectDelta.getFlags() & IResourceDelta.OPEN) != 0;
+			if (projectDelta.getKind() == IResourceDelta.ADDED || opened) {
+				migrate((IProject) projectDelta.getResource());
+			}
+		}
+	}
+}
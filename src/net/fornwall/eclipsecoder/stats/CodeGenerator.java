@@ -1,6 +1,9 @@
 package net.fornwall.eclipsecoder.stats;
 
-import java.util.regex.Pattern;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Abstract base class for code generators for different programming languages.
@@ -18,8 +21,14 @@ public abstract class CodeGenerator {
 	public static final String TAG_METHODPARAMS = "$METHODPARAMS$";
 	public static final String TAG_RETURNTYPE = "$RETURNTYPE$";
 
+	/** The last parsed code template of each code generator (and thereby language). */
+	private static final Map<Class<?>, CodeTemplate> PARSED_TEMPLATES = new ConcurrentHashMap<Class<?>, CodeTemplate>();
+
 	protected ProblemStatement problemStatement;
 
+	/** How the generated test harness should time the test cases. */
+	protected TestTiming testTiming = TestTiming.DEFAULT;
+
 	public CodeGenerator(ProblemStatement problemStatement) {
 		this.problemStatement = problemStatement;
 	}
@@ -61,23 +70,80 @@ public abstract class CodeGenerator {
 	 * The code template should be settable from a preference page and should default to a reasonable value.
 	 * 
 	 * <p>
-	 * This method is not intended to be overridden by subclasses unless there is special need.
+	 * This method is not intended to be overridden by subclasses unless there is special need. To support additional
+	 * tags, override {@link #getTemplateTags()} instead.
 	 * 
 	 * @return the code template with the variables replaced
 	 */
 	public String getSolutionStub(String codeTemplate) {
-		return codeTemplate.replaceAll(Pattern.quote(TAG_CLASSNAME), problemStatement.getSolutionClassName())
-				.replaceAll(Pattern.quote(TAG_METHODNAME), problemStatement.getSolutionMethodName())
-				.replaceAll(Pattern.quote(TAG_METHODPARAMS), getMethodParamsString())
-				.replaceAll(Pattern.quote(TAG_DUMMYRETURN), getDummyReturnString())
-				.replaceAll(Pattern.quote(TAG_RETURNTYPE), getTypeString(problemStatement.getReturnType()));
+		Map<String, String> tags = getTemplateTags();
+		CodeTemplate template = PARSED_TEMPLATES.get(getClass());
+		if (template == null || !template.getSource().equals(codeTemplate)
+				|| !template.getKnownTags().equals(tags.keySet())) {
+			template = CodeTemplate.parse(codeTemplate, tags.keySet());
+			PARSED_TEMPLATES.put(getClass(), template);
+		}
+		return template.render(tags);
+	}
+
+	/**
+	 * Get the tags available in the code template mapped to their replacements. Subclasses may override this method to
+	 * register language specific tags in addition to the ones returned by this implementation.
+	 * 
+	 * @return a mutable map from tag (such as {@link #TAG_CLASSNAME}) to its replacement
+	 */
+	protected Map<String, String> getTemplateTags() {
+		Map<String, String> tags = new HashMap<String, String>();
+		tags.put(TAG_CLASSNAME, problemStatement.getSolutionClassName());
+		tags.put(TAG_METHODNAME, problemStatement.getSolutionMethodName());
+		tags.put(TAG_METHODPARAMS, getMethodParamsString());
+		tags.put(TAG_DUMMYRETURN, getDummyReturnString());
+		tags.put(TAG_RETURNTYPE, getTypeString(problemStatement.getReturnType()));
+		return tags;
 	}
 
 	/**
 	 * Should return the source for a test suite file which tests the solution.
+	 * 
+	 * <p>
+	 * The test suite should run each test case {@link TestTiming#getWarmUpRuns()} times on a new solution instance
+	 * without checking the result, and then once more timed with a monotonic clock. For each test case it should print
+	 * a line in the format of {@link TestResult#toRecord()}, which the plug-in collects from the output to show the
+	 * results and flag slow test cases. Other output is shown as is.
+	 * 
+	 * @see #getTestTiming()
+	 * @see #writeTestsSource(Appendable)
 	 */
 	public abstract String getTestsSource();
 
+	/**
+	 * Write the source for a test suite file which tests the solution.
+	 * 
+	 * This implementation writes the result of {@link #getTestsSource()}. See {@link StreamingCodeGenerator} for code
+	 * generators which stream the test suite instead.
+	 * 
+	 * @param out
+	 *            Where to write the source.
+	 */
+	public void writeTestsSource(Appendable out) throws IOException {
+		out.append(getTestsSource());
+	}
+
+	/**
+	 * Get how the generated test harness should time the test cases.
+	 */
+	public TestTiming getTestTiming() {
+		return testTiming;
+	}
+
+	/**
+	 * Set how the generated test harness should time the test cases. Called by the language support with the timing
+	 * from the preferences before the tests source is generated.
+	 */
+	public void setTestTiming(TestTiming testTiming) {
+		this.testTiming = testTiming;
+	}
+
 	/**
 	 * Map a java language class to the matching language type.
 	 * 
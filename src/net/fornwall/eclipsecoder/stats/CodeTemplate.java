@@ -0,0 +1,116 @@
+package net.fornwall.eclipsecoder.stats;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A code template parsed into literal text and tag segments.
+ *
+ * A tag is a name enclosed in dollar signs such as <code>$CLASSNAME$</code>, which may contain any character except a
+ * dollar sign. Only the tags known when parsing are recognized, and other text between dollar signs is kept as literal
+ * text, so that in <code>$1$CLASSNAME$</code> the tag is <code>$CLASSNAME$</code>. Parsing is done once, after which
+ * the template can be rendered any number of times into a single buffer sized up front. Replacement values are
+ * inserted as is, so they may contain any characters including <code>$</code> and <code>\</code>.
+ */
+public class CodeTemplate {
+
+	/**
+	 * Parse a template.
+	 *
+	 * @param source
+	 *            The template text.
+	 * @param knownTags
+	 *            The tags to recognize, including the enclosing dollar signs.
+	 * @return The parsed template.
+	 */
+	public static CodeTemplate parse(String source, Set<String> knownTags) {
+		List<String> literals = new ArrayList<String>();
+		List<String> tags = new ArrayList<String>();
+
+		int literalStart = 0;
+		int i = 0;
+		while ((i = source.indexOf('$', i)) != -1) {
+			int end = source.indexOf('$', i + 1);
+			if (end == -1) {
+				break;
+			}
+			String tag = source.substring(i, end + 1);
+			if (knownTags.contains(tag)) {
+				literals.add(source.substring(literalStart, i));
+				tags.add(tag);
+				literalStart = i = end + 1;
+			} else {
+				// the dollar sign ending an unknown tag may start a known one
+				i = end;
+			}
+		}
+		literals.add(source.substring(literalStart));
+
+		return new CodeTemplate(source, new HashSet<String>(knownTags), literals.toArray(new String[literals.size()]),
+				tags.toArray(new String[tags.size()]));
+	}
+
+	private final Set<String> knownTags;
+
+	private final int literalsLength;
+
+	/** The literal text before each tag, followed by the text after the last tag. */
+	private final String[] literals;
+
+	private final String source;
+
+	private final String[] tags;
+
+	private CodeTemplate(String source, Set<String> knownTags, String[] literals, String[] tags) {
+		this.source = source;
+		this.knownTags = knownTags;
+		this.literals = literals;
+		this.tags = tags;
+		int length = 0;
+		for (String literal : literals) {
+			length += literal.length();
+		}
+		this.literalsLength = length;
+	}
+
+	/**
+	 * Get the tags recognized when parsing this template.
+	 */
+	public Set<String> getKnownTags() {
+		return knownTags;
+	}
+
+	/**
+	 * Get the template text this template was parsed from.
+	 */
+	public String getSource() {
+		return source;
+	}
+
+	/**
+	 * Render the template. Tags without a value are rendered unchanged.
+	 *
+	 * @param tagValues
+	 *            Map from tag (including the enclosing dollar signs) to its replacement.
+	 * @return The template with the tags replaced.
+	 */
+	public String render(Map<String, String> tagValues) {
+		String[] values = new String[tags.length];
+		int length = literalsLength;
+		for (int i = 0; i < tags.length; i++) {
+			String value = tagValues.get(tags[i]);
+			values[i] = (value == null) ? tags[i] : value;
+			length += values[i].length();
+		}
+
+		StringBuilder builder = new StringBuilder(length);
+		for (int i = 0; i < tags.length; i++) {
+			builder.append(literals[i]).append(values[i]);
+		}
+		builder.append(literals[tags.length]);
+		return builder.toString();
+	}
+}
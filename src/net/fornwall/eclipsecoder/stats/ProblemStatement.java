@@ -5,7 +5,6 @@ import java.beans.XMLEncoder;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.UnsupportedEncodingException;
-import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -16,65 +15,126 @@ import net.fornwall.eclipsecoder.util.Utilities;
  */
 public class ProblemStatement {
 
+	/**
+	 * Project preference key under which older versions stored the problem statement encoded by {@link #toXML()}.
+	 * Projects using it are migrated to a state file in the background when they are opened.
+	 */
 	public static final String XML_PREFS_KEY = "problemStatementXml";
 
+	/**
+	 * When a project is associated with a TopCoder problem, the project-relative path of the state file written in the
+	 * {@link ProblemStatementFormat} should be stored under this key under the project preferences in a portable
+	 * format.
+	 */
+	public static final String STATE_PATH_PREFS_KEY = "problemStatementFile";
+
+	/**
+	 * A test case with its parameters and expected return value.
+	 * 
+	 * Values are stored in the compact representation described by {@link TestValues}, so that an <code>Integer[]</code>
+	 * parameter is kept as an <code>int[]</code>. Code generators should use {@link #getParameterCount()},
+	 * {@link #getParameterValue(int)} and {@link #getReturnValueCompact()}, which return the stored values without
+	 * copying. The public fields and the bean properties {@link #getParameters()} and {@link #getReturnValue()} hold
+	 * the boxed values, as before, for existing callers and serialization.
+	 */
 	public static class TestCase {
+		/**
+		 * The parameters as boxed values, kept in step with the compact values by {@link #setParameters(Object[])}.
+		 * Assigning the field or its elements directly does not change the compact values.
+		 * 
+		 * @deprecated use {@link #getParameterValue(int)} or {@link #getParameters()}
+		 */
+		@Deprecated
 		public Object[] parameters;
 
+		/**
+		 * The return value as a boxed value, kept in step with the compact value by {@link #setReturnValue(Object)}.
+		 * Assigning the field directly does not change the compact value.
+		 * 
+		 * @deprecated use {@link #getReturnValueCompact()} or {@link #getReturnValue()}
+		 */
+		@Deprecated
 		public Object returnValue;
 
+		private Object[] compactParameters;
+
+		private Object compactReturnValue;
+
 		public TestCase() {
 			// no-arg constructor needed by serialization
 		}
 
+		/**
+		 * Create a test case from values in either boxed or compact representation.
+		 */
 		public TestCase(Object returnValue, Object[] parameters) {
-			this.returnValue = returnValue;
-			this.parameters = parameters;
+			setReturnValue(returnValue);
+			setParameters(parameters);
+		}
+
+		public int getParameterCount() {
+			return compactParameters == null ? 0 : compactParameters.length;
+		}
+
+		/**
+		 * Get a parameter in its compact representation without copying it.
+		 */
+		public Object getParameterValue(int index) {
+			return compactParameters[index];
+		}
+
+		/**
+		 * Get the return value in its compact representation without copying it.
+		 */
+		public Object getReturnValueCompact() {
+			return compactReturnValue;
 		}
 
 		/** Needed by serialization. */
+		@SuppressWarnings("deprecation")
 		public Object[] getParameters() {
 			return parameters;
 		}
 
 		/** Needed by serialization. */
+		@SuppressWarnings("deprecation")
 		public Object getReturnValue() {
 			return returnValue;
 		}
 
-		/** Needed by serialization. */
+		/** Needed by serialization. Accepts values in either boxed or compact representation. */
+		@SuppressWarnings("deprecation")
 		public void setParameters(Object[] parameters) {
-			this.parameters = parameters;
+			if (parameters == null) {
+				this.parameters = null;
+				this.compactParameters = null;
+				return;
+			}
+			this.parameters = new Object[parameters.length];
+			this.compactParameters = new Object[parameters.length];
+			for (int i = 0; i < parameters.length; i++) {
+				this.compactParameters[i] = TestValues.toCompact(parameters[i]);
+				this.parameters[i] = TestValues.toBoxed(this.compactParameters[i]);
+			}
 		}
 
-		/** Needed by serialization. */
+		/** Needed by serialization. Accepts a value in either boxed or compact representation. */
+		@SuppressWarnings("deprecation")
 		public void setReturnValue(Object returnValue) {
-			this.returnValue = returnValue;
+			this.compactReturnValue = TestValues.toCompact(returnValue);
+			this.returnValue = TestValues.toBoxed(compactReturnValue);
 		}
 	}
 
 	public static Object parsePrimitiveType(Class<?> c, String valueString) {
-		valueString = valueString.trim();
-		if (c == Integer.class) {
-			return Integer.parseInt(valueString);
-		} else if (c == Character.class) {
-			return valueString.charAt(1);
-		} else if (c == Long.class) {
-			return Long.parseLong(valueString);
-		} else if (c == Double.class) {
-			return Double.parseDouble(valueString);
-		} else if (c == String.class) {
-			return valueString.substring(1, valueString.length() - 1);
-		} else if (c == Boolean.class) {
-			return Boolean.parseBoolean(valueString);
-		} else {
-			throw new IllegalArgumentException("Unknown type: " + c);
-		}
+		return ValueParser.parse(c, valueString);
 	}
 
 	/**
 	 * Parse the values contained in text into an instance of the supplied class.
 	 * 
+	 * The text is scanned once by a {@link ValueParser} without splitting it into intermediate strings.
+	 * 
 	 * @param c
 	 *            The class which should be instantiated.
 	 * @param text
@@ -82,41 +142,17 @@ public class ProblemStatement {
 	 * @return An instance of c which has been parsed from text.
 	 */
 	public static Object parseType(Class<?> c, String text) {
-		if (!c.isArray()) {
-			return parsePrimitiveType(c, text);
-		}
-
-		// remove trailing '{' and '}'
-		text = text.trim();
-		text = text.substring(1, text.length() - 1).trim();
-		if (text.length() == 0)
-			return Array.newInstance(c.getComponentType(), 0);
-
-		String[] parts = null;
-		if (c.getComponentType() == String.class) {
-			// Handle strings with , in body as in "that is, some more"
-			List<String> partList = new ArrayList<String>();
-			int lastIndex = -1;
-			for (int i = 0; i < text.length(); i++) {
-				if (text.charAt(i) == '"') {
-					if (lastIndex == -1) {
-						lastIndex = i;
-					} else {
-						partList.add(text.substring(lastIndex, i + 1));
-						lastIndex = -1;
-					}
-				}
-			}
-			parts = partList.toArray(new String[partList.size()]);
-		} else {
-			parts = text.split(",");
-		}
-
-		Object[] result = (Object[]) Array.newInstance(c.getComponentType(), parts.length);
-		for (int i = 0; i < result.length; i++)
-			result[i] = parsePrimitiveType(c.getComponentType(), parts[i]);
+		return ValueParser.parse(c, text);
+	}
 
-		return result;
+	/**
+	 * Parse the values contained in text into the compact representation of the supplied class, suitable for
+	 * constructing a {@link TestCase} without boxing each array element.
+	 * 
+	 * @see TestValues#compactType(Class)
+	 */
+	public static Object parseCompactType(Class<?> c, String text) {
+		return ValueParser.parse(TestValues.compactType(c), text);
 	}
 
 	private String contestName;
@@ -0,0 +1,352 @@
+package net.fornwall.eclipsecoder.stats;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Versioned, length-prefixed binary format for persisting a {@link ProblemStatement}.
+ *
+ * The layout is a magic number and format version followed by the fields of the problem statement. Strings are stored
+ * as a byte length (-1 for null) followed by UTF-8 bytes, lists and arrays as an element count followed by the
+ * elements. Test case values are stored in their compact representation (see {@link TestValues}) preceded by a one
+ * byte type tag, so that primitive arrays are written and read without boxing.
+ */
+public class ProblemStatementFormat {
+
+	/** File extension used for problem statement state files. */
+	public static final String FILE_EXTENSION = "problem";
+
+	/** "ECPS" */
+	private static final int MAGIC = 0x45435053;
+
+	private static final int VERSION = 1;
+
+	private static final byte TAG_NULL = 0;
+	private static final byte TAG_INT = 1;
+	private static final byte TAG_LONG = 2;
+	private static final byte TAG_DOUBLE = 3;
+	private static final byte TAG_CHAR = 4;
+	private static final byte TAG_BOOLEAN = 5;
+	private static final byte TAG_STRING = 6;
+	private static final byte TAG_INT_ARRAY = 7;
+	private static final byte TAG_LONG_ARRAY = 8;
+	private static final byte TAG_DOUBLE_ARRAY = 9;
+	private static final byte TAG_CHAR_ARRAY = 10;
+	private static final byte TAG_BOOLEAN_ARRAY = 11;
+	private static final byte TAG_OBJECT_ARRAY = 12;
+
+	/**
+	 * Decode a problem statement from a buffer created by {@link #toBytes(ProblemStatement)}.
+	 */
+	public static ProblemStatement fromBuffer(ByteBuffer buffer) throws IOException {
+		try {
+			if (buffer.getInt() != MAGIC) {
+				throw new IOException("Not a problem statement file");
+			}
+			int version = buffer.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported problem statement format version: " + version);
+			}
+
+			ProblemStatement result = new ProblemStatement();
+			result.setContestName(readString(buffer));
+			result.setSolutionClassName(readString(buffer));
+			result.setSolutionMethodName(readString(buffer));
+			result.setInContest(buffer.get() != 0);
+			result.setReturnType(readType(buffer));
+
+			int parameterCount = buffer.getInt();
+			List<String> parameterNames = new ArrayList<String>(parameterCount);
+			List<Class<?>> parameterTypes = new ArrayList<Class<?>>(parameterCount);
+			for (int i = 0; i < parameterCount; i++) {
+				parameterNames.add(readString(buffer));
+				parameterTypes.add(readType(buffer));
+			}
+			result.setParameterNames(parameterNames);
+			result.setParameterTypes(parameterTypes);
+
+			int testCaseCount = buffer.getInt();
+			List<ProblemStatement.TestCase> testCases = new ArrayList<ProblemStatement.TestCase>(testCaseCount);
+			for (int i = 0; i < testCaseCount; i++) {
+				Object returnValue = readValue(buffer);
+				Object[] parameters = new Object[buffer.getInt()];
+				for (int j = 0; j < parameters.length; j++) {
+					parameters[j] = readValue(buffer);
+				}
+				testCases.add(new ProblemStatement.TestCase(returnValue, parameters));
+			}
+			result.setTestCases(testCases);
+
+			result.setHtmlDescription(readString(buffer));
+			return result;
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Truncated problem statement file", e);
+		}
+	}
+
+	/**
+	 * Read a problem statement from a channel. The channel is read until its end but not closed.
+	 */
+	public static ProblemStatement read(ReadableByteChannel channel) throws IOException {
+		ByteBuffer buffer;
+		if (channel instanceof FileChannel) {
+			FileChannel fileChannel = (FileChannel) channel;
+			buffer = ByteBuffer.allocate((int) (fileChannel.size() - fileChannel.position()));
+			while (buffer.hasRemaining() && fileChannel.read(buffer) != -1) {
+				// keep reading until buffer is full
+			}
+		} else {
+			buffer = ByteBuffer.allocate(8192);
+			while (channel.read(buffer) != -1) {
+				if (!buffer.hasRemaining()) {
+					ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+					buffer.flip();
+					larger.put(buffer);
+					buffer = larger;
+				}
+			}
+		}
+		buffer.flip();
+		return fromBuffer(buffer);
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0) {
+			return null;
+		}
+		if (!buffer.hasArray()) {
+			byte[] bytes = new byte[length];
+			buffer.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+		if (length > buffer.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		String result = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+				StandardCharsets.UTF_8);
+		buffer.position(buffer.position() + length);
+		return result;
+	}
+
+	private static Class<?> readType(ByteBuffer buffer) throws IOException {
+		String name = readString(buffer);
+		if (name == null) {
+			return null;
+		}
+		try {
+			return Class.forName(name, false, ProblemStatementFormat.class.getClassLoader());
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Unknown type in problem statement file: " + name, e);
+		}
+	}
+
+	private static Object readValue(ByteBuffer buffer) throws IOException {
+		byte tag = buffer.get();
+		switch (tag) {
+		case TAG_NULL:
+			return null;
+		case TAG_INT:
+			return buffer.getInt();
+		case TAG_LONG:
+			return buffer.getLong();
+		case TAG_DOUBLE:
+			return buffer.getDouble();
+		case TAG_CHAR:
+			return buffer.getChar();
+		case TAG_BOOLEAN:
+			return buffer.get() != 0;
+		case TAG_STRING:
+			return readString(buffer);
+		case TAG_INT_ARRAY: {
+			int[] result = new int[buffer.getInt()];
+			buffer.asIntBuffer().get(result);
+			buffer.position(buffer.position() + result.length * 4);
+			return result;
+		}
+		case TAG_LONG_ARRAY: {
+			long[] result = new long[buffer.getInt()];
+			buffer.asLongBuffer().get(result);
+			buffer.position(buffer.position() + result.length * 8);
+			return result;
+		}
+		case TAG_DOUBLE_ARRAY: {
+			double[] result = new double[buffer.getInt()];
+			buffer.asDoubleBuffer().get(result);
+			buffer.position(buffer.position() + result.length * 8);
+			return result;
+		}
+		case TAG_CHAR_ARRAY: {
+			char[] result = new char[buffer.getInt()];
+			buffer.asCharBuffer().get(result);
+			buffer.position(buffer.position() + result.length * 2);
+			return result;
+		}
+		case TAG_BOOLEAN_ARRAY: {
+			boolean[] result = new boolean[buffer.getInt()];
+			for (int i = 0; i < result.length; i++) {
+				result[i] = buffer.get() != 0;
+			}
+			return result;
+		}
+		case TAG_OBJECT_ARRAY: {
+			Class<?> componentType = readType(buffer);
+			Object[] result = (Object[]) Array.newInstance(componentType, buffer.getInt());
+			for (int i = 0; i < result.length; i++) {
+				result[i] = readValue(buffer);
+			}
+			return result;
+		}
+		default:
+			throw new IOException("Unknown value tag in problem statement file: " + tag);
+		}
+	}
+
+	/**
+	 * Encode a problem statement.
+	 */
+	public static byte[] toBytes(ProblemStatement statement) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeString(out, statement.getContestName());
+			writeString(out, statement.getSolutionClassName());
+			writeString(out, statement.getSolutionMethodName());
+			out.writeBoolean(statement.isInContest());
+			writeType(out, statement.getReturnType());
+
+			List<String> parameterNames = statement.getParameterNames();
+			List<Class<?>> parameterTypes = statement.getParameterTypes();
+			out.writeInt(parameterNames.size());
+			for (int i = 0; i < parameterNames.size(); i++) {
+				writeString(out, parameterNames.get(i));
+				writeType(out, parameterTypes.get(i));
+			}
+
+			List<ProblemStatement.TestCase> testCases = statement.getTestCases();
+			out.writeInt(testCases.size());
+			for (ProblemStatement.TestCase testCase : testCases) {
+				writeValue(out, testCase.getReturnValueCompact());
+				out.writeInt(testCase.getParameterCount());
+				for (int i = 0; i < testCase.getParameterCount(); i++) {
+					writeValue(out, testCase.getParameterValue(i));
+				}
+			}
+
+			writeString(out, statement.getHtmlDescription());
+		} catch (IOException e) {
+			// will never happen - writing to memory
+			throw new RuntimeException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Write a problem statement to a channel. The channel is not closed.
+	 */
+	public static void write(ProblemStatement statement, WritableByteChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(toBytes(statement));
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static void writeType(DataOutputStream out, Class<?> type) throws IOException {
+		writeString(out, (type == null) ? null : type.getName());
+	}
+
+	private static void writeValue(DataOutputStream out, Object value) throws IOException {
+		value = TestValues.toCompact(value);
+		if (value == null) {
+			out.writeByte(TAG_NULL);
+		} else if (value instanceof Integer) {
+			out.writeByte(TAG_INT);
+			out.writeInt((Integer) value);
+		} else if (value instanceof Long) {
+			out.writeByte(TAG_LONG);
+			out.writeLong((Long) value);
+		} else if (value instanceof Double) {
+			out.writeByte(TAG_DOUBLE);
+			out.writeDouble((Double) value);
+		} else if (value instanceof Character) {
+			out.writeByte(TAG_CHAR);
+			out.writeChar((Character) value);
+		} else if (value instanceof Boolean) {
+			out.writeByte(TAG_BOOLEAN);
+			out.writeBoolean((Boolean) value);
+		} else if (value instanceof String) {
+			out.writeByte(TAG_STRING);
+			writeString(out, (String) value);
+		} else if (value instanceof int[]) {
+			int[] array = (int[]) value;
+			out.writeByte(TAG_INT_ARRAY);
+			out.writeInt(array.length);
+			for (int element : array) {
+				out.writeInt(element);
+			}
+		} else if (value instanceof long[]) {
+			long[] array = (long[]) value;
+			out.writeByte(TAG_LONG_ARRAY);
+			out.writeInt(array.length);
+			for (long element : array) {
+				out.writeLong(element);
+			}
+		} else if (value instanceof double[]) {
+			double[] array = (double[]) value;
+			out.writeByte(TAG_DOUBLE_ARRAY);
+			out.writeInt(array.length);
+			for (double element : array) {
+				out.writeDouble(element);
+			}
+		} else if (value instanceof char[]) {
+			char[] array = (char[]) value;
+			out.writeByte(TAG_CHAR_ARRAY);
+			out.writeInt(array.length);
+			for (char element : array) {
+				out.writeChar(element);
+			}
+		} else if (value instanceof boolean[]) {
+			boolean[] array = (boolean[]) value;
+			out.writeByte(TAG_BOOLEAN_ARRAY);
+			out.writeInt(array.length);
+			for (boolean element : array) {
+				out.writeBoolean(element);
+			}
+		} else if (value instanceof Object[]) {
+			Object[] array = (Object[]) value;
+			out.writeByte(TAG_OBJECT_ARRAY);
+			writeType(out, array.getClass().getComponentType());
+			out.writeInt(array.length);
+			for (Object element : array) {
+				writeValue(out, element);
+			}
+		} else {
+			throw new IllegalArgumentException("Unsupported test case value type: " + value.getClass());
+		}
+	}
+
+	private ProblemStatementFormat() {
+		// never called - only static methods used
+	}
+}
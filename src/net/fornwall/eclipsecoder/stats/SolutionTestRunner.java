@@ -0,0 +1,232 @@
+package net.fornwall.eclipsecoder.stats;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs the test cases of a problem statement against a compiled solution.
+ *
+ * The {@link #main(String[])} method is the entry point of a test runner process kept alive by the plug-in. The
+ * process connects to the plug-in on the loopback interface and then serves requests until told to exit or the
+ * connection is closed. Each solution is loaded in a new class loader, so that the process can be reused after the
+ * solution has been recompiled, and test cases are run one at a time as requested, so that the plug-in can spread them
+ * over several processes and replace a process stuck on a test case.
+ *
+ * This class only depends on the Java class library and on the other classes of this package, so that the runner
+ * process does not need the Eclipse platform on its class path.
+ */
+public class SolutionTestRunner {
+
+	/**
+	 * Loads the solution from class files sent with a request, falling back to a class path.
+	 */
+	private static class SolutionClassLoader extends URLClassLoader {
+		private final Map<String, byte[]> classes;
+
+		SolutionClassLoader(URL[] classPath, Map<String, byte[]> classes) {
+			// the parent of the system class loader only sees the Java class library
+			super(classPath, ClassLoader.getSystemClassLoader().getParent());
+			this.classes = classes;
+		}
+
+		@Override
+		protected Class<?> findClass(String name) throws ClassNotFoundException {
+			byte[] classFile = classes.remove(name);
+			if (classFile == null) {
+				return super.findClass(name);
+			}
+			return defineClass(name, classFile, 0, classFile.length);
+		}
+	}
+
+	/** Request to close the connection and exit. */
+	public static final byte COMMAND_EXIT = 0;
+
+	/**
+	 * Request to load a solution, replacing any solution loaded earlier. Followed by the length and bytes of the problem
+	 * statement in the format of {@link ProblemStatementFormat}, by the number and paths of class path entries, by the
+	 * number, names, lengths and contents of class files holding the compiled solution, and finally by the number of
+	 * warm-up runs of each test case. Not answered; a solution which cannot be loaded fails each test case instead.
+	 */
+	public static final byte COMMAND_LOAD = 1;
+
+	/**
+	 * Request to run a test case of the loaded solution. Followed by the index of the test case, and answered by a
+	 * {@link TestResult}.
+	 */
+	public static final byte COMMAND_TEST = 2;
+
+	/**
+	 * Find the public method of a solution class implementing the problem.
+	 */
+	public static Method findSolutionMethod(Class<?> solutionClass, ProblemStatement statement)
+			throws NoSuchMethodException {
+		for (Method method : solutionClass.getMethods()) {
+			if (method.getName().equals(statement.getSolutionMethodName())
+					&& method.getParameterTypes().length == statement.getParameterTypes().size()
+					&& !Modifier.isStatic(method.getModifiers())) {
+				return method;
+			}
+		}
+		throw new NoSuchMethodException(statement.getSolutionClassName() + "." + statement.getSolutionMethodName());
+	}
+
+	/**
+	 * Entry point of the test runner process.
+	 *
+	 * @param args
+	 *            The port the plug-in listens on.
+	 */
+	public static void main(String[] args) throws IOException {
+		try (Socket socket = new Socket(InetAddress.getByName(null), Integer.parseInt(args[0]))) {
+			socket.setTcpNoDelay(true);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+			URLClassLoader loader = null;
+			ProblemStatement statement = null;
+			int warmUpRuns = 0;
+			Class<?> solutionClass = null;
+			Method method = null;
+			String loadError = "No solution loaded";
+			while (true) {
+				byte command;
+				try {
+					command = in.readByte();
+				} catch (EOFException e) {
+					return;
+				}
+
+				if (command == COMMAND_LOAD) {
+					byte[] statementBytes = new byte[in.readInt()];
+					in.readFully(statementBytes);
+					statement = ProblemStatementFormat.fromBuffer(ByteBuffer.wrap(statementBytes));
+					URL[] classPath = new URL[in.readInt()];
+					for (int i = 0; i < classPath.length; i++) {
+						classPath[i] = new File(in.readUTF()).toURI().toURL();
+					}
+					int classCount = in.readInt();
+					Map<String, byte[]> classes = new HashMap<String, byte[]>();
+					for (int i = 0; i < classCount; i++) {
+						String name = in.readUTF();
+						byte[] classFile = new byte[in.readInt()];
+						in.readFully(classFile);
+						classes.put(name, classFile);
+					}
+					warmUpRuns = in.readInt();
+
+					if (loader != null) {
+						loader.close();
+					}
+					loader = new SolutionClassLoader(classPath, classes);
+					try {
+						solutionClass = loader.loadClass(statement.getSolutionClassName());
+						method = findSolutionMethod(solutionClass, statement);
+						loadError = null;
+					} catch (Exception e) {
+						loadError = e.toString();
+					} catch (LinkageError e) {
+						loadError = e.toString();
+					}
+				} else if (command == COMMAND_TEST) {
+					int index = in.readInt();
+					TestResult result;
+					if (loadError != null) {
+						result = new TestResult(index, TestResult.Outcome.ERROR, 0, null, loadError);
+					} else {
+						result = runTest(solutionClass, method, index, statement.getTestCases().get(index), warmUpRuns);
+					}
+					result.write(out);
+					out.flush();
+				} else {
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Run a single test case on new instances of the solution class: first the given number of untimed warm-up runs,
+	 * and then a run timed with {@link System#nanoTime()} whose result is checked.
+	 */
+	public static TestResult runTest(Class<?> solutionClass, Method method, int index,
+			ProblemStatement.TestCase testCase, int warmUpRuns) {
+		try {
+			for (int i = 0; i < warmUpRuns; i++) {
+				method.invoke(solutionClass.newInstance(), copyParameters(testCase));
+			}
+		} catch (Exception e) {
+			// reported by the timed run below
+		}
+
+		Object[] parameters = copyParameters(testCase);
+		long start = System.nanoTime();
+		try {
+			Object solution = solutionClass.newInstance();
+			start = System.nanoTime();
+			Object actual = method.invoke(solution, parameters);
+			long elapsed = System.nanoTime() - start;
+			boolean passed = TestValues.matches(testCase.getReturnValueCompact(), actual);
+			return new TestResult(index, passed ? TestResult.Outcome.PASSED : TestResult.Outcome.FAILED, elapsed,
+					TestValues.format(actual), null);
+		} catch (InvocationTargetException e) {
+			return new TestResult(index, TestResult.Outcome.ERROR, System.nanoTime() - start, null, e.getCause()
+					.toString());
+		} catch (Exception e) {
+			return new TestResult(index, TestResult.Outcome.ERROR, System.nanoTime() - start, null, e.toString());
+		}
+	}
+
+	private static Object[] copyParameters(ProblemStatement.TestCase testCase) {
+		Object[] parameters = new Object[testCase.getParameterCount()];
+		for (int i = 0; i < parameters.length; i++) {
+			parameters[i] = copy(testCase.getParameterValue(i));
+		}
+		return parameters;
+	}
+
+	/**
+	 * Copy an array parameter so that a solution modifying its parameters does not affect later test runs.
+	 */
+	private static Object copy(Object value) {
+		if (value == null || !value.getClass().isArray()) {
+			return value;
+		} else if (value instanceof Object[]) {
+			Object[] result = ((Object[]) value).clone();
+			for (int i = 0; i < result.length; i++) {
+				result[i] = copy(result[i]);
+			}
+			return result;
+		} else if (value instanceof int[]) {
+			return ((int[]) value).clone();
+		} else if (value instanceof long[]) {
+			return ((long[]) value).clone();
+		} else if (value instanceof double[]) {
+			return ((double[]) value).clone();
+		} else if (value instanceof char[]) {
+			return ((char[]) value).clone();
+		} else if (value instanceof boolean[]) {
+			return ((boolean[]) value).clone();
+		}
+		return value;
+	}
+
+	private SolutionTestRunner() {
+		// never called - only static methods used
+	}
+}
@@ -0,0 +1,110 @@
+package net.fornwall.eclipsecoder.stats;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Base class for code generators which can render each test case of the test suite on its own.
+ * 
+ * The test suite is rendered as a header, the source of each test case and a footer. The test cases are rendered in
+ * chunks in parallel by {@link #writeTestsSource(Appendable)} and written in order as they become available, with a
+ * bounded number of chunks held in memory, instead of building the whole test suite as one string.
+ */
+public abstract class StreamingCodeGenerator extends CodeGenerator {
+
+	/** Pool rendering chunks of test cases in {@link #writeTestsSource(Appendable)}. */
+	private static final ForkJoinPool TEST_SOURCE_POOL = new ForkJoinPool();
+
+	private static final int TEST_CASES_PER_CHUNK = 16;
+
+	public StreamingCodeGenerator(ProblemStatement problemStatement) {
+		super(problemStatement);
+	}
+
+	/**
+	 * Append the source for a single test case. Called concurrently from several threads for different test cases, so
+	 * implementations must not modify shared state.
+	 * 
+	 * @param builder
+	 *            The builder to append the source to.
+	 * @param index
+	 *            The index of the test case in the problem statement.
+	 * @param testCase
+	 *            The test case to render.
+	 */
+	protected abstract void appendTestCaseSource(StringBuilder builder, int index, ProblemStatement.TestCase testCase);
+
+	/**
+	 * Return the whole test suite as one string, as rendered by {@link #writeTestsSource(Appendable)}.
+	 */
+	@Override
+	public String getTestsSource() {
+		StringBuilder builder = new StringBuilder();
+		try {
+			writeTestsSource(builder);
+		} catch (IOException e) {
+			// only thrown when interrupted, as appending to a StringBuilder does not fail
+			throw new IllegalStateException(e);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * @return the source following the test cases
+	 */
+	protected abstract String getTestsSourceFooter();
+
+	/**
+	 * @return the source preceding the test cases
+	 */
+	protected abstract String getTestsSourceHeader();
+
+	@Override
+	public void writeTestsSource(Appendable out) throws IOException {
+		out.append(getTestsSourceHeader());
+		final List<ProblemStatement.TestCase> testCases = problemStatement.getTestCases();
+		int maxPendingChunks = TEST_SOURCE_POOL.getParallelism() * 2;
+		Deque<Future<String>> pendingChunks = new ArrayDeque<Future<String>>(maxPendingChunks);
+		try {
+			for (int chunkStart = 0; chunkStart < testCases.size(); chunkStart += TEST_CASES_PER_CHUNK) {
+				final int start = chunkStart;
+				final int end = Math.min(chunkStart + TEST_CASES_PER_CHUNK, testCases.size());
+				pendingChunks.addLast(TEST_SOURCE_POOL.submit(new Callable<String>() {
+					public String call() {
+						StringBuilder builder = new StringBuilder();
+						for (int i = start; i < end; i++) {
+							appendTestCaseSource(builder, i, testCases.get(i));
+						}
+						return builder.toString();
+					}
+				}));
+				if (pendingChunks.size() == maxPendingChunks) {
+					out.append(pendingChunks.removeFirst().get());
+				}
+			}
+			while (!pendingChunks.isEmpty()) {
+				out.append(pendingChunks.removeFirst().get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		} finally {
+			for (Future<String> chunk : pendingChunks) {
+				chunk.cancel(false);
+			}
+		}
+		out.append(getTestsSourceFooter());
+	}
+}
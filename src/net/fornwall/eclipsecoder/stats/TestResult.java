@@ -0,0 +1,214 @@
+package net.fornwall.eclipsecoder.stats;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The result of running a single test case against a solution.
+ *
+ * Results are sent from the test runner process to the plug-in with {@link #write(DataOutput)} and
+ * {@link #read(DataInput)}. Generated test harnesses print them as text lines in the format of {@link #toRecord()}
+ * instead, which are recognized in the output of a run with {@link #parseRecord(String)}.
+ */
+public class TestResult {
+
+	/**
+	 * How a test case ended.
+	 */
+	public enum Outcome {
+		/** The solution returned the expected value. */
+		PASSED,
+		/** The solution returned another value than the expected one. */
+		FAILED,
+		/** The solution threw an exception, or could not be called. */
+		ERROR
+	}
+
+	/**
+	 * The prefix of a line holding a test result in the format of {@link #toRecord()}.
+	 */
+	public static final String RECORD_PREFIX = "#result\t";
+
+	private static String escape(String s) {
+		if (s == null) {
+			return "";
+		}
+		StringBuilder builder = new StringBuilder(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '\\':
+				builder.append("\\\\");
+				break;
+			case '\t':
+				builder.append("\\t");
+				break;
+			case '\n':
+				builder.append("\\n");
+				break;
+			case '\r':
+				builder.append("\\r");
+				break;
+			default:
+				builder.append(c);
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Parse a line of output which may hold a test result in the format of {@link #toRecord()}.
+	 *
+	 * @return the result, or null if the line is not a valid test result record
+	 */
+	public static TestResult parseRecord(String line) {
+		if (!line.startsWith(RECORD_PREFIX)) {
+			return null;
+		}
+		String[] fields = line.substring(RECORD_PREFIX.length()).split("\t", -1);
+		if (fields.length != 5) {
+			return null;
+		}
+		try {
+			return new TestResult(Integer.parseInt(fields[0]), Outcome.valueOf(fields[1]), Long.parseLong(fields[2]),
+					unescape(fields[3]), unescape(fields[4]));
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Read a result written by {@link #write(DataOutput)}.
+	 *
+	 * @throws IOException
+	 *             if the input ends or does not hold a valid result
+	 */
+	public static TestResult read(DataInput in) throws IOException {
+		int index = in.readInt();
+		int outcomeOrdinal = in.readByte();
+		if (index < 0 || outcomeOrdinal < 0 || outcomeOrdinal >= Outcome.values().length) {
+			throw new IOException("Invalid test result for test case " + index + " with outcome " + outcomeOrdinal);
+		}
+		Outcome outcome = Outcome.values()[outcomeOrdinal];
+		long elapsedNanos = in.readLong();
+		String actual = in.readBoolean() ? in.readUTF() : null;
+		String message = in.readBoolean() ? in.readUTF() : null;
+		return new TestResult(index, outcome, elapsedNanos, actual, message);
+	}
+
+	private static String unescape(String s) {
+		if (s.length() == 0) {
+			return null;
+		}
+		StringBuilder builder = new StringBuilder(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '\\' && i + 1 < s.length()) {
+				c = s.charAt(++i);
+				c = (c == 't') ? '\t' : (c == 'n') ? '\n' : (c == 'r') ? '\r' : c;
+			}
+			builder.append(c);
+		}
+		return builder.toString();
+	}
+
+	private static void writeNullableUTF(DataOutput out, String s) throws IOException {
+		out.writeBoolean(s != null);
+		if (s != null) {
+			// writeUTF is limited to 65535 encoded bytes
+			out.writeUTF((s.length() > 16384) ? s.substring(0, 16384) + "..." : s);
+		}
+	}
+
+	private final String actual;
+
+	private final long elapsedNanos;
+
+	private final int index;
+
+	private final String message;
+
+	private final Outcome outcome;
+
+	/**
+	 * @param index
+	 *            The index of the test case in {@link ProblemStatement#getTestCases()}.
+	 * @param outcome
+	 *            How the test case ended.
+	 * @param elapsedNanos
+	 *            The time spent in the solution method.
+	 * @param actual
+	 *            The value returned by the solution formatted with {@link TestValues#format(Object)}, or null if no
+	 *            value was returned.
+	 * @param message
+	 *            A description of an error, or null.
+	 */
+	public TestResult(int index, Outcome outcome, long elapsedNanos, String actual, String message) {
+		this.index = index;
+		this.outcome = outcome;
+		this.elapsedNanos = elapsedNanos;
+		this.actual = actual;
+		this.message = message;
+	}
+
+	public String getActual() {
+		return actual;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public Outcome getOutcome() {
+		return outcome;
+	}
+
+	public boolean isPassed() {
+		return outcome == Outcome.PASSED;
+	}
+
+	/**
+	 * Format the result as a single line, which is {@link #RECORD_PREFIX} followed by the tab separated index, outcome
+	 * name, elapsed nanoseconds, actual value and message. The actual value and message are empty if null, and
+	 * backslashes, tabs and line breaks in them are escaped as <code>\\</code>, <code>\t</code>, <code>\n</code> and
+	 * <code>\r</code>. An example is <code>#result&#9;0&#9;FAILED&#9;1200&#9;{1, 2}&#9;</code>.
+	 */
+	public String toRecord() {
+		return RECORD_PREFIX + index + '\t' + outcome + '\t' + elapsedNanos + '\t' + escape(actual) + '\t'
+				+ escape(message);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("Test case ").append(index).append(": ").append(outcome);
+		builder.append(" (").append(elapsedNanos / 1000000).append(" ms)");
+		if (actual != null && outcome != Outcome.PASSED) {
+			builder.append(", got ").append(actual);
+		}
+		if (message != null) {
+			builder.append(", ").append(message);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Write the result in the binary form read by {@link #read(DataInput)}.
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(index);
+		out.writeByte(outcome.ordinal());
+		out.writeLong(elapsedNanos);
+		writeNullableUTF(out, actual);
+		writeNullableUTF(out, message);
+	}
+}
@@ -0,0 +1,78 @@
+package net.fornwall.eclipsecoder.stats;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How test cases are timed, and when a test case is considered slow compared to the TopCoder time limit.
+ *
+ * Each test case is first run a number of warm-up times whose results are ignored, so that class loading and JIT
+ * compilation are not included in the timing. It is then run once more and timed with a monotonic clock, such as
+ * {@link System#nanoTime()} in Java. A test case is slow if its timed run uses more than a given fraction of the time
+ * limit, as it may then exceed the limit when judged.
+ */
+public class TestTiming {
+
+	/** The default timing: one warm-up run, and flagging test cases using more than half the time limit. */
+	public static final TestTiming DEFAULT = new TestTiming(1, 0.5);
+
+	/** The time limit for a single test case used by TopCoder. */
+	public static final long TIME_LIMIT_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+	private final double slowFraction;
+
+	private final int warmUpRuns;
+
+	/**
+	 * @param warmUpRuns
+	 *            The number of untimed runs of each test case before the timed run.
+	 * @param slowFraction
+	 *            The fraction of {@link #TIME_LIMIT_NANOS} above which a test case is slow, which must be positive.
+	 */
+	public TestTiming(int warmUpRuns, double slowFraction) {
+		if (warmUpRuns < 0) {
+			throw new IllegalArgumentException("Negative number of warm-up runs: " + warmUpRuns);
+		}
+		if (!(slowFraction > 0)) {
+			throw new IllegalArgumentException("Slow fraction not positive: " + slowFraction);
+		}
+		this.warmUpRuns = warmUpRuns;
+		this.slowFraction = slowFraction;
+	}
+
+	/**
+	 * Describe a test result, including a warning if the test case was slow.
+	 */
+	public String describe(TestResult result) {
+		if (!isSlow(result)) {
+			return result.toString();
+		}
+		return result + " - SLOW: more than " + Math.round(slowFraction * 100) + "% of the "
+				+ TimeUnit.NANOSECONDS.toSeconds(TIME_LIMIT_NANOS) + " s time limit";
+	}
+
+	/**
+	 * @return the time in nanoseconds above which a test case is slow
+	 */
+	public long getSlowNanos() {
+		return (long) (TIME_LIMIT_NANOS * slowFraction);
+	}
+
+	public int getWarmUpRuns() {
+		return warmUpRuns;
+	}
+
+	/**
+	 * @return true if a test case taking the given time in its timed run is slow
+	 */
+	public boolean isSlow(long elapsedNanos) {
+		return elapsedNanos > getSlowNanos();
+	}
+
+	/**
+	 * @return true if a test case ran to completion and was slow, which a test case ending with an error such as a
+	 *         timeout never is
+	 */
+	public boolean isSlow(TestResult result) {
+		return result.getOutcome() != TestResult.Outcome.ERROR && isSlow(result.getElapsedNanos());
+	}
+}
@@ -0,0 +1,234 @@
+package net.fornwall.eclipsecoder.stats;
+
+import java.lang.reflect.Array;
+
+/**
+ * Conversions between the boxed and the compact representation of test case values.
+ *
+ * The boxed representation is the one described by {@link ProblemStatement#getParameterTypes()} and
+ * {@link ProblemStatement#getReturnType()}, e.g. an <code>Integer[]</code>. The compact representation stores arrays of
+ * boxed primitives as arrays of the primitive type (<code>int[]</code>, <code>long[]</code>, <code>double[]</code>,
+ * <code>char[]</code> and <code>boolean[]</code>), which avoids keeping one object per element alive. Scalars and
+ * <code>String</code> values are the same in both representations.
+ */
+public class TestValues {
+
+	/** The maximum absolute or relative error allowed for floating point results, as in TopCoder. */
+	private static final double MAX_DOUBLE_ERROR = 1e-9;
+
+	private static Class<?> boxedType(Class<?> type) {
+		if (type == int[].class) {
+			return Integer[].class;
+		} else if (type == long[].class) {
+			return Long[].class;
+		} else if (type == double[].class) {
+			return Double[].class;
+		} else if (type == char[].class) {
+			return Character[].class;
+		} else if (type == boolean[].class) {
+			return Boolean[].class;
+		} else if (type.isArray() && type.getComponentType().isArray()) {
+			return Array.newInstance(boxedType(type.getComponentType()), 0).getClass();
+		}
+		return type;
+	}
+
+	/**
+	 * Get the type used for the compact representation of values of the given (boxed) type.
+	 */
+	public static Class<?> compactType(Class<?> type) {
+		if (!type.isArray()) {
+			return type;
+		}
+		Class<?> componentType = type.getComponentType();
+		if (componentType == Integer.class) {
+			return int[].class;
+		} else if (componentType == Long.class) {
+			return long[].class;
+		} else if (componentType == Double.class) {
+			return double[].class;
+		} else if (componentType == Character.class) {
+			return char[].class;
+		} else if (componentType == Boolean.class) {
+			return boolean[].class;
+		} else if (componentType.isArray()) {
+			return Array.newInstance(compactType(componentType), 0).getClass();
+		}
+		return type;
+	}
+
+	/**
+	 * Format a value in either representation the way TopCoder shows it, such as <code>{1, 2, 3}</code> for an array
+	 * and <code>"abc"</code> for a string.
+	 */
+	public static String format(Object value) {
+		StringBuilder builder = new StringBuilder();
+		format(builder, value);
+		return builder.toString();
+	}
+
+	private static void format(StringBuilder builder, Object value) {
+		if (value == null) {
+			builder.append("null");
+		} else if (value.getClass().isArray()) {
+			builder.append('{');
+			for (int i = 0; i < Array.getLength(value); i++) {
+				if (i != 0) {
+					builder.append(", ");
+				}
+				format(builder, Array.get(value, i));
+			}
+			builder.append('}');
+		} else if (value instanceof String) {
+			builder.append('"').append(value).append('"');
+		} else if (value instanceof Character) {
+			builder.append('\'').append(value).append('\'');
+		} else {
+			builder.append(value);
+		}
+	}
+
+	/**
+	 * Get the number of elements of an array in either representation.
+	 */
+	public static int length(Object array) {
+		return Array.getLength(array);
+	}
+
+	/**
+	 * Check if a value returned by a solution matches the expected value. Values may be in either representation, and
+	 * floating point values match if their absolute or relative difference is at most 1e-9.
+	 */
+	public static boolean matches(Object expected, Object actual) {
+		if (expected == null || actual == null) {
+			return expected == actual;
+		} else if (expected.getClass().isArray()) {
+			if (!actual.getClass().isArray() || Array.getLength(expected) != Array.getLength(actual)) {
+				return false;
+			}
+			for (int i = 0; i < Array.getLength(expected); i++) {
+				if (!matches(Array.get(expected, i), Array.get(actual, i))) {
+					return false;
+				}
+			}
+			return true;
+		} else if (expected instanceof Double && actual instanceof Number) {
+			double expectedValue = ((Double) expected).doubleValue();
+			double actualValue = ((Number) actual).doubleValue();
+			if (Double.isNaN(expectedValue) || Double.isNaN(actualValue)) {
+				return Double.isNaN(expectedValue) && Double.isNaN(actualValue);
+			}
+			double error = Math.abs(expectedValue - actualValue);
+			return error <= MAX_DOUBLE_ERROR || error <= MAX_DOUBLE_ERROR * Math.abs(expectedValue);
+		}
+		return expected.equals(actual);
+	}
+
+	/**
+	 * Convert a value to its boxed representation. Values already in boxed form are returned as is.
+	 */
+	public static Object toBoxed(Object value) {
+		if (value instanceof int[]) {
+			int[] array = (int[]) value;
+			Integer[] result = new Integer[array.length];
+			for (int i = 0; i < array.length; i++) {
+				result[i] = array[i];
+			}
+			return result;
+		} else if (value instanceof long[]) {
+			long[] array = (long[]) value;
+			Long[] result = new Long[array.length];
+			for (int i = 0; i < array.length; i++) {
+				result[i] = array[i];
+			}
+			return result;
+		} else if (value instanceof double[]) {
+			double[] array = (double[]) value;
+			Double[] result = new Double[array.length];
+			for (int i = 0; i < array.length; i++) {
+				result[i] = array[i];
+			}
+			return result;
+		} else if (value instanceof char[]) {
+			char[] array = (char[]) value;
+			Character[] result = new Character[array.length];
+			for (int i = 0; i < array.length; i++) {
+				result[i] = array[i];
+			}
+			return result;
+		} else if (value instanceof boolean[]) {
+			boolean[] array = (boolean[]) value;
+			Boolean[] result = new Boolean[array.length];
+			for (int i = 0; i < array.length; i++) {
+				result[i] = array[i];
+			}
+			return result;
+		} else if (value instanceof Object[] && value.getClass().getComponentType().isArray()) {
+			Object[] array = (Object[]) value;
+			Object[] result = (Object[]) Array.newInstance(boxedType(value.getClass().getComponentType()), array.length);
+			for (int i = 0; i < array.length; i++) {
+				result[i] = toBoxed(array[i]);
+			}
+			return result;
+		}
+		return value;
+	}
+
+	/**
+	 * Convert a value to its compact representation. Values already in compact form are returned as is.
+	 */
+	public static Object toCompact(Object value) {
+		if (!(value instanceof Object[])) {
+			return value;
+		}
+		Class<?> componentType = value.getClass().getComponentType();
+		if (componentType == Integer.class) {
+			Integer[] array = (Integer[]) value;
+			int[] result = new int[array.length];
+			for (int i = 0; i < array.length; i++) {
+				result[i] = array[i];
+			}
+			return result;
+		} else if (componentType == Long.class) {
+			Long[] array = (Long[]) value;
+			long[] result = new long[array.length];
+			for (int i = 0; i < array.length; i++) {
+				result[i] = array[i];
+			}
+			return result;
+		} else if (componentType == Double.class) {
+			Double[] array = (Double[]) value;
+			double[] result = new double[array.length];
+			for (int i = 0; i < array.length; i++) {
+				result[i] = array[i];
+			}
+			return result;
+		} else if (componentType == Character.class) {
+			Character[] array = (Character[]) value;
+			char[] result = new char[array.length];
+			for (int i = 0; i < array.length; i++) {
+				result[i] = array[i];
+			}
+			return result;
+		} else if (componentType == Boolean.class) {
+			Boolean[] array = (Boolean[]) value;
+			boolean[] result = new boolean[array.length];
+			for (int i = 0; i < array.length; i++) {
+				result[i] = array[i];
+			}
+			return result;
+		} else if (componentType.isArray()) {
+			Object[] array = (Object[]) value;
+			Object[] result = (Object[]) Array.newInstance(compactType(componentType), array.length);
+			for (int i = 0; i < array.length; i++) {
+				result[i] = toCompact(array[i]);
+			}
+			return result;
+		}
+		return value;
+	}
+
+	private TestValues() {
+		// never called - only static methods used
+	}
+}
@@ -0,0 +1,372 @@
+package net.fornwall.eclipsecoder.stats;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cursor-based parser for the textual representation of test case values as given by TopCoder, such as
+ * <code>42</code>, <code>'x'</code>, <code>"some text"</code> or <code>{1, 2, 3}</code>.
+ *
+ * The text is scanned once from left to right - no intermediate substrings or <code>String[]</code> parts are created
+ * and arrays of primitive types are filled directly from the characters. Arrays may be nested.
+ *
+ * String and character literals are taken verbatim, as TopCoder does not escape them, so <code>"/\"</code> is the
+ * two characters <code>/\</code>. A string therefore ends at the first quote followed by the end of the text or,
+ * inside an array, by a <code>,</code> or <code>}</code>, so that it may contain quotes.
+ */
+public class ValueParser {
+
+	private static final int INITIAL_ARRAY_CAPACITY = 16;
+
+	/**
+	 * Parse the complete text as a value of the given type.
+	 *
+	 * @param type
+	 *            The type to parse, either a boxed primitive type, a primitive type, <code>String</code> or an array of
+	 *            those.
+	 * @param text
+	 *            The text to parse.
+	 * @return The parsed value. Arrays of boxed types are returned as such, arrays of primitive types as primitive
+	 *         arrays.
+	 */
+	public static Object parse(Class<?> type, CharSequence text) {
+		ValueParser parser = new ValueParser(text);
+		Object result = parser.parseValue(type);
+		parser.expectEnd();
+		return result;
+	}
+
+	/** The number of arrays entered but not yet closed, where a string may also end before a , or }. */
+	private int depth;
+
+	private final int end;
+
+	private int position;
+
+	private final CharSequence text;
+
+	public ValueParser(CharSequence text) {
+		this.text = text;
+		this.end = text.length();
+	}
+
+	private void expect(char c) {
+		skipWhitespace();
+		if (position >= end || text.charAt(position) != c) {
+			throw error("Expected '" + c + "'");
+		}
+		position++;
+	}
+
+	/**
+	 * Check that only whitespace remains of the text.
+	 */
+	public void expectEnd() {
+		skipWhitespace();
+		if (position != end) {
+			throw error("Unexpected trailing characters");
+		}
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " at position " + position + " in: " + text);
+	}
+
+	/**
+	 * Check whether the quote at the current position closes a string.
+	 */
+	private boolean isClosingQuote() {
+		int next = position + 1;
+		while (next < end && Character.isWhitespace(text.charAt(next))) {
+			next++;
+		}
+		if (next == end) {
+			return true;
+		}
+		char c = text.charAt(next);
+		return depth > 0 && (c == ',' || c == '}');
+	}
+
+	/**
+	 * Advance past the next element separator of an array.
+	 *
+	 * @return true if another element follows, false if the closing brace of the array has been consumed.
+	 */
+	private boolean nextElement() {
+		skipWhitespace();
+		if (position < end) {
+			char c = text.charAt(position++);
+			if (c == ',') {
+				return true;
+			} else if (c == '}') {
+				depth--;
+				return false;
+			}
+			position--;
+		}
+		throw error("Expected ',' or '}'");
+	}
+
+	/**
+	 * Consume the opening brace of an array.
+	 *
+	 * @return true if the array contains elements, false if the array was empty and has been fully consumed.
+	 */
+	private boolean openArray() {
+		expect('{');
+		skipWhitespace();
+		if (position < end && text.charAt(position) == '}') {
+			position++;
+			return false;
+		}
+		depth++;
+		return true;
+	}
+
+	public boolean parseBoolean() {
+		skipWhitespace();
+		if (regionMatches("true")) {
+			return true;
+		} else if (regionMatches("false")) {
+			return false;
+		}
+		throw error("Expected boolean");
+	}
+
+	public boolean[] parseBooleanArray() {
+		if (!openArray()) {
+			return new boolean[0];
+		}
+		boolean[] result = new boolean[INITIAL_ARRAY_CAPACITY];
+		int size = 0;
+		do {
+			if (size == result.length) {
+				result = Arrays.copyOf(result, size * 2);
+			}
+			result[size++] = parseBoolean();
+		} while (nextElement());
+		return (size == result.length) ? result : Arrays.copyOf(result, size);
+	}
+
+	public char parseChar() {
+		expect('\'');
+		if (position >= end) {
+			throw error("Unterminated character");
+		}
+		char result = text.charAt(position++);
+		if (position >= end || text.charAt(position) != '\'') {
+			throw error("Expected closing '");
+		}
+		position++;
+		return result;
+	}
+
+	public char[] parseCharArray() {
+		if (!openArray()) {
+			return new char[0];
+		}
+		char[] result = new char[INITIAL_ARRAY_CAPACITY];
+		int size = 0;
+		do {
+			if (size == result.length) {
+				result = Arrays.copyOf(result, size * 2);
+			}
+			result[size++] = parseChar();
+		} while (nextElement());
+		return (size == result.length) ? result : Arrays.copyOf(result, size);
+	}
+
+	public double parseDouble() {
+		skipWhitespace();
+		int start = position;
+		while (position < end) {
+			char c = text.charAt(position);
+			if ((c >= '0' && c <= '9') || c == '.' || c == '-' || c == '+' || c == 'e' || c == 'E') {
+				position++;
+			} else {
+				break;
+			}
+		}
+		if (start == position) {
+			throw error("Expected number");
+		}
+		try {
+			return Double.parseDouble(text.subSequence(start, position).toString());
+		} catch (NumberFormatException e) {
+			position = start;
+			throw error("Malformed number");
+		}
+	}
+
+	public double[] parseDoubleArray() {
+		if (!openArray()) {
+			return new double[0];
+		}
+		double[] result = new double[INITIAL_ARRAY_CAPACITY];
+		int size = 0;
+		do {
+			if (size == result.length) {
+				result = Arrays.copyOf(result, size * 2);
+			}
+			result[size++] = parseDouble();
+		} while (nextElement());
+		return (size == result.length) ? result : Arrays.copyOf(result, size);
+	}
+
+	public int parseInt() {
+		long value = parseLong();
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+			throw error("Integer out of range");
+		}
+		return (int) value;
+	}
+
+	public int[] parseIntArray() {
+		if (!openArray()) {
+			return new int[0];
+		}
+		int[] result = new int[INITIAL_ARRAY_CAPACITY];
+		int size = 0;
+		do {
+			if (size == result.length) {
+				result = Arrays.copyOf(result, size * 2);
+			}
+			result[size++] = parseInt();
+		} while (nextElement());
+		return (size == result.length) ? result : Arrays.copyOf(result, size);
+	}
+
+	public long parseLong() {
+		skipWhitespace();
+		boolean negative = false;
+		if (position < end && (text.charAt(position) == '-' || text.charAt(position) == '+')) {
+			negative = text.charAt(position) == '-';
+			position++;
+		}
+		int start = position;
+		// accumulate negatively to be able to represent Long.MIN_VALUE
+		long result = 0;
+		while (position < end) {
+			int digit = text.charAt(position) - '0';
+			if (digit < 0 || digit > 9) {
+				break;
+			}
+			if (result < (Long.MIN_VALUE + digit) / 10) {
+				throw error("Long out of range");
+			}
+			result = result * 10 - digit;
+			position++;
+		}
+		if (start == position) {
+			throw error("Expected digit");
+		}
+		if (!negative) {
+			if (result == Long.MIN_VALUE) {
+				throw error("Long out of range");
+			}
+			result = -result;
+		}
+		return result;
+	}
+
+	public long[] parseLongArray() {
+		if (!openArray()) {
+			return new long[0];
+		}
+		long[] result = new long[INITIAL_ARRAY_CAPACITY];
+		int size = 0;
+		do {
+			if (size == result.length) {
+				result = Arrays.copyOf(result, size * 2);
+			}
+			result[size++] = parseLong();
+		} while (nextElement());
+		return (size == result.length) ? result : Arrays.copyOf(result, size);
+	}
+
+	private Object[] parseObjectArray(Class<?> componentType) {
+		if (!openArray()) {
+			return (Object[]) Array.newInstance(componentType, 0);
+		}
+		List<Object> elements = new ArrayList<Object>();
+		do {
+			elements.add(parseValue(componentType));
+		} while (nextElement());
+		return elements.toArray((Object[]) Array.newInstance(componentType, elements.size()));
+	}
+
+	public String parseString() {
+		expect('"');
+		int start = position;
+		while (position < end) {
+			if (text.charAt(position) == '"' && isClosingQuote()) {
+				String result = text.subSequence(start, position).toString();
+				position++;
+				return result;
+			}
+			position++;
+		}
+		position = start;
+		throw error("Unterminated string");
+	}
+
+	/**
+	 * Parse the value at the current position.
+	 *
+	 * @param type
+	 *            The type to parse.
+	 * @return The parsed value.
+	 */
+	public Object parseValue(Class<?> type) {
+		if (type.isArray()) {
+			Class<?> componentType = type.getComponentType();
+			if (componentType == int.class) {
+				return parseIntArray();
+			} else if (componentType == long.class) {
+				return parseLongArray();
+			} else if (componentType == double.class) {
+				return parseDoubleArray();
+			} else if (componentType == char.class) {
+				return parseCharArray();
+			} else if (componentType == boolean.class) {
+				return parseBooleanArray();
+			}
+			return parseObjectArray(componentType);
+		} else if (type == Integer.class || type == int.class) {
+			return parseInt();
+		} else if (type == Long.class || type == long.class) {
+			return parseLong();
+		} else if (type == Double.class || type == double.class) {
+			return parseDouble();
+		} else if (type == Character.class || type == char.class) {
+			return parseChar();
+		} else if (type == Boolean.class || type == boolean.class) {
+			return parseBoolean();
+		} else if (type == String.class) {
+			return parseString();
+		}
+		throw new IllegalArgumentException("Unknown type: " + type);
+	}
+
+	private boolean regionMatches(String word) {
+		int length = word.length();
+		if (position + length > end) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (Character.toLowerCase(text.charAt(position + i)) != word.charAt(i)) {
+				return false;
+			}
+		}
+		position += length;
+		return true;
+	}
+
+	private void skipWhitespace() {
+		while (position < end && Character.isWhitespace(text.charAt(position))) {
+			position++;
+		}
+	}
+}
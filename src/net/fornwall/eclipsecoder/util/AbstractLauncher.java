@@ -1,5 +1,11 @@
 package net.fornwall.eclipsecoder.util;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.fornwall.eclipsecoder.preferences.EclipseCoderPlugin;
+
+import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.debug.core.DebugPlugin;
 import org.eclipse.debug.core.ILaunchConfiguration;
@@ -10,14 +16,59 @@ import org.eclipse.debug.ui.DebugUITools;
 
 /**
  * See http://www.eclipse.org/articles/Article-Launch-Framework/launch.html
+ *
+ * Launchers returning a project from {@link #getProject()} reuse one launch configuration per project and launch type,
+ * marked with the {@link #ATTRIBUTE_PROJECT} attribute, which is only saved again when
+ * {@link #setUpConfiguration(ILaunchConfigurationWorkingCopy)} changes it. Launchers returning a process builder from
+ * {@link #createProcessBuilder()} can run without the debug framework when {@link EclipseCoderPlugin#fastRun()} is
+ * enabled, with the output shown in a console. Such a process is terminated when the launcher is run again, or from
+ * the console.
  */
 public abstract class AbstractLauncher implements Runnable {
 
+	/**
+	 * The attribute of a launch configuration holding the name of the project it is reused for, so that it is found
+	 * again after a restart.
+	 */
+	public static final String ATTRIBUTE_PROJECT = EclipseCoderPlugin.PLUGIN_ID + ".project";
+
+	/** Launch configurations reused per launch type and project name, cached to avoid searching them on each launch. */
+	private static final ConcurrentMap<String, ILaunchConfiguration> configurations = new ConcurrentHashMap<String, ILaunchConfiguration>();
+
+	/**
+	 * Return a process builder for running directly without the debug framework, or null if not supported. The error
+	 * stream of the builder is redirected to its output stream before starting it.
+	 */
+	protected ProcessBuilder createProcessBuilder() throws Exception {
+		return null;
+	}
+
 	private ILaunchConfigurationWorkingCopy createLaunchWorkingCopy() throws CoreException {
+		IProject project = getProject();
+		ILaunchConfiguration cached = (project == null) ? null : configurations.get(getConfigurationKey(project));
+		if (cached != null && cached.exists()) {
+			return cached.getWorkingCopy();
+		}
+
 		ILaunchManager manager = DebugPlugin.getDefault().getLaunchManager();
 		ILaunchConfigurationType configType = manager.getLaunchConfigurationType(getLauncherTypeId());
+		if (project != null) {
+			for (ILaunchConfiguration existing : manager.getLaunchConfigurations(configType)) {
+				if (project.getName().equals(existing.getAttribute(ATTRIBUTE_PROJECT, (String) null))) {
+					return existing.getWorkingCopy();
+				}
+			}
+		}
 		String launchConfigName = manager.generateLaunchConfigurationName(getLauncherName());
-		return configType.newInstance(null, launchConfigName);
+		ILaunchConfigurationWorkingCopy workingCopy = configType.newInstance(null, launchConfigName);
+		if (project != null) {
+			workingCopy.setAttribute(ATTRIBUTE_PROJECT, project.getName());
+		}
+		return workingCopy;
+	}
+
+	private String getConfigurationKey(IProject project) {
+		return getLauncherTypeId() + '/' + project.getName();
 	}
 
 	/**
@@ -27,21 +78,61 @@ public abstract class AbstractLauncher implements Runnable {
 
 	/**
 	 * Return the id for a launch configuration type extension.
-	 * 
+	 *
 	 * @see ILaunchManager#getLaunchConfigurationType(String)
 	 */
 	protected abstract String getLauncherTypeId();
 
+	/**
+	 * Return the project whose launch configuration is reused between launches, or null to create a new launch
+	 * configuration for each launch.
+	 */
+	protected IProject getProject() {
+		return null;
+	}
+
 	public final void launch() {
+		launch(ILaunchManager.RUN_MODE);
+	}
+
+	/**
+	 * Launch in the given mode. In run mode the process is started directly if fast run is enabled and supported by
+	 * the launcher.
+	 *
+	 * @param mode
+	 *            {@link ILaunchManager#RUN_MODE} or {@link ILaunchManager#DEBUG_MODE}
+	 */
+	public final void launch(final String mode) {
 		try {
+			if (ILaunchManager.RUN_MODE.equals(mode) && EclipseCoderPlugin.fastRun()) {
+				ProcessBuilder builder = createProcessBuilder();
+				if (builder != null) {
+					builder.redirectErrorStream(true);
+					ProcessConsole.terminate(getLauncherName());
+					ProcessConsole.pipe(builder.start(), ProcessConsole.show(getLauncherName()),
+							EclipseCoderPlugin.testTiming());
+					return;
+				}
+			}
+
 			ILaunchConfigurationWorkingCopy workingCopy = createLaunchWorkingCopy();
 			setUpConfiguration(workingCopy);
-			final ILaunchConfiguration configuration = workingCopy.doSave();
+			final ILaunchConfiguration configuration;
+			if (workingCopy.getOriginal() == null || workingCopy.isDirty()) {
+				configuration = workingCopy.doSave();
+			} else {
+				// an unchanged copy of a saved configuration does not need to be saved again
+				configuration = workingCopy.getOriginal();
+			}
+			IProject project = getProject();
+			if (project != null) {
+				configurations.put(getConfigurationKey(project), configuration);
+			}
 			Utilities.runInDisplayThread(new Runnable() {
 
 				public void run() {
 					// must be called from ui thread
-					DebugUITools.launch(configuration, ILaunchManager.RUN_MODE);
+					DebugUITools.launch(configuration, mode);
 				}
 
 			});
@@ -0,0 +1,255 @@
+package net.fornwall.eclipsecoder.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import net.fornwall.eclipsecoder.preferences.EclipseCoderPlugin;
+import net.fornwall.eclipsecoder.stats.ProblemStatement;
+import net.fornwall.eclipsecoder.stats.TestResult;
+import net.fornwall.eclipsecoder.stats.TestTiming;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.IJobManager;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.ui.console.MessageConsole;
+import org.eclipse.ui.console.MessageConsoleStream;
+
+/**
+ * Job to incrementally build a project and launch a Runnable afterwards.
+ *
+ * When a solution file is given the build is skipped if its modification stamp is the same as at the last build of the
+ * project which finished without errors. When the solution file is a Java source file of a project with a problem
+ * statement and {@link EclipseCoderPlugin#warmTestRunner()} is enabled, the solution is instead compiled in memory by
+ * {@link SolutionCompiler} and its test cases are run by the {@link WarmTestRunner} of the project, with the results
+ * shown in a console, and the Runnable is not launched.
+ *
+ * Jobs should be scheduled through {@link #scheduleBuildAndRun(IProject, IFile, Runnable)}, which coalesces repeated
+ * requests for the same project: a job which has not yet run is cancelled when superseded, and a running one is
+ * cancelled through its progress monitor and waited for before the new job starts building.
+ *
+ * See http://www.eclipse.org/articles/Article-Builders/builders.html
+ */
+public class BuildAndRunJob extends Job {
+
+	private static class BuildRecord {
+		volatile long builtStamp = IResource.NULL_STAMP;
+
+		volatile long lastBuildDuration = -1;
+	}
+
+	private static final ConcurrentMap<IProject, BuildRecord> records = new ConcurrentHashMap<IProject, BuildRecord>();
+
+	private static final ConcurrentMap<IProject, BuildAndRunJob> latest = new ConcurrentHashMap<IProject, BuildAndRunJob>();
+
+	private static final IResourceChangeListener projectListener = new IResourceChangeListener() {
+		public void resourceChanged(IResourceChangeEvent event) {
+			IResource resource = event.getResource();
+			if (resource instanceof IProject) {
+				records.remove(resource);
+			}
+		}
+	};
+
+	/**
+	 * Start forgetting the builds of projects which are closed or deleted. Called when the plug-in is started.
+	 */
+	public static void addResourceChangeListener() {
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(projectListener,
+				IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.PRE_DELETE);
+	}
+
+	/**
+	 * Stop listening for closed projects and forget all builds. Called when the plug-in is stopped.
+	 */
+	public static void removeResourceChangeListener() {
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(projectListener);
+		records.clear();
+	}
+
+	/**
+	 * Schedule a job building a project and running a Runnable afterwards, cancelling any earlier job for the same
+	 * project.
+	 *
+	 * @param project
+	 *            the project to build before launching
+	 * @param solutionFile
+	 *            the file whose modification triggers a build, or null to always build
+	 * @param runAfterBuild
+	 *            the Runnable to launch after the build on the project has been completed
+	 * @return the scheduled job
+	 */
+	public static BuildAndRunJob scheduleBuildAndRun(IProject project, IFile solutionFile, Runnable runAfterBuild) {
+		BuildAndRunJob job = new BuildAndRunJob(project, solutionFile, runAfterBuild);
+		job.superseded = latest.put(project, job);
+		if (job.superseded != null && job.superseded.cancel()) {
+			// the earlier job had not started and never will, so there is nothing to wait for
+			job.superseded = null;
+		}
+		job.schedule();
+		return job;
+	}
+
+	/**
+	 * Get the duration of the last build of a project done by this job.
+	 *
+	 * @return the duration in milliseconds, or -1 if the project has not been built by this job
+	 */
+	public static long getLastBuildDuration(IProject project) {
+		BuildRecord record = records.get(project);
+		return (record == null) ? -1 : record.lastBuildDuration;
+	}
+
+	private static BuildRecord getBuildRecord(IProject project) {
+		BuildRecord record = records.get(project);
+		if (record == null) {
+			BuildRecord existing = records.putIfAbsent(project, record = new BuildRecord());
+			if (existing != null) {
+				record = existing;
+			}
+		}
+		return record;
+	}
+
+	private final IProject project;
+
+	private final Runnable runAfterBuild;
+
+	private final IFile solutionFile;
+
+	/** The earlier job for the same project which this job replaces, if any. */
+	private BuildAndRunJob superseded;
+
+	/**
+	 * @param project
+	 *            the project to build before launching
+	 * @param solutionFile
+	 *            the file whose modification triggers a build, or null to always build
+	 * @param runAfterBuild
+	 *            the Runnable to launch after the build on the project has been completed
+	 */
+	public BuildAndRunJob(IProject project, IFile solutionFile, Runnable runAfterBuild) {
+		super("Building and running " + project.getName());
+		this.project = project;
+		this.solutionFile = solutionFile;
+		this.runAfterBuild = runAfterBuild;
+		setPriority(Job.SHORT);
+	}
+
+	@Override
+	public boolean belongsTo(Object family) {
+		return family == BuildAndRunJob.class;
+	}
+
+	private void build(IProgressMonitor monitor) throws CoreException, InterruptedException {
+		IJobManager manager = Job.getJobManager();
+		SubMonitor progress = SubMonitor.convert(monitor, 2);
+		project.build(IncrementalProjectBuilder.INCREMENTAL_BUILD, progress.newChild(1));
+		Object buildFamily = project.getWorkspace().isAutoBuilding() ? ResourcesPlugin.FAMILY_AUTO_BUILD
+				: ResourcesPlugin.FAMILY_MANUAL_BUILD;
+		manager.wakeUp(buildFamily);
+		manager.join(buildFamily, progress.newChild(1));
+	}
+
+	/**
+	 * Compile the solution in memory and run the test cases of a problem statement against it in the warm test
+	 * runner of the project, showing the results in a console.
+	 * 
+	 * @throws OperationCanceledException
+	 *             if the monitor is cancelled while the test cases run
+	 */
+	private void runWarm(ProblemStatement statement, IProgressMonitor monitor) throws IOException {
+		final TestTiming timing = EclipseCoderPlugin.testTiming();
+		MessageConsole console = ProcessConsole.show(project.getName() + " test cases");
+		try (final MessageConsoleStream out = console.newMessageStream()) {
+			Map<String, byte[]> classes;
+			try {
+				classes = SolutionCompiler.compile(project, Collections.singletonList(solutionFile),
+						Collections.<File> emptyList());
+			} catch (CoreException e) {
+				out.println(e.getStatus().getMessage());
+				return;
+			}
+
+			List<TestResult> results = WarmTestRunner.getRunner(project).runTests(statement,
+					Collections.<File> emptyList(), classes, new WarmTestRunner.Listener() {
+						public void output(String line) {
+							out.println(line);
+						}
+
+						public void testFinished(TestResult result) {
+							out.println(timing.describe(result));
+						}
+					}, monitor);
+			out.println();
+			out.println(ProcessConsole.summarize(results, timing));
+		}
+	}
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		SubMonitor progress = SubMonitor.convert(monitor, getName(), 10);
+		try {
+			if (superseded != null) {
+				// let the cancelled job release the workspace before building again
+				superseded.join();
+				superseded = null;
+			}
+			if (progress.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+
+			if (solutionFile != null && "java".equals(solutionFile.getFileExtension())
+					&& EclipseCoderPlugin.warmTestRunner() && SolutionCompiler.isAvailable()) {
+				ProblemStatement statement = EclipseCoderPlugin.getProblemStatement(project);
+				if (statement != null) {
+					runWarm(statement, progress);
+					return Status.OK_STATUS;
+				}
+			}
+
+			BuildRecord record = getBuildRecord(project);
+			long stamp = (solutionFile == null) ? IResource.NULL_STAMP : solutionFile.getModificationStamp();
+			if (stamp == IResource.NULL_STAMP || stamp != record.builtStamp) {
+				long startTime = System.nanoTime();
+				build(progress.newChild(9));
+				record.lastBuildDuration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+				int maxSeverity = project.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE);
+				record.builtStamp = (maxSeverity == IMarker.SEVERITY_ERROR) ? IResource.NULL_STAMP : stamp;
+			}
+			progress.setWorkRemaining(1);
+			if (progress.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+			runAfterBuild.run();
+			return Status.OK_STATUS;
+		} catch (InterruptedException e) {
+			return Status.CANCEL_STATUS;
+		} catch (OperationCanceledException e) {
+			return Status.CANCEL_STATUS;
+		} catch (Exception e) {
+			return new Status(IStatus.ERROR, EclipseCoderPlugin.PLUGIN_ID, IStatus.OK, e.getMessage(), e);
+		} finally {
+			latest.remove(project, this);
+			monitor.done();
+		}
+	}
+}
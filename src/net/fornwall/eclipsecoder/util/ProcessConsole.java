@@ -0,0 +1,145 @@
+package net.fornwall.eclipsecoder.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import net.fornwall.eclipsecoder.stats.TestResult;
+import net.fornwall.eclipsecoder.stats.TestTiming;
+
+import org.eclipse.ui.console.ConsolePlugin;
+import org.eclipse.ui.console.IConsole;
+import org.eclipse.ui.console.IConsoleManager;
+import org.eclipse.ui.console.MessageConsole;
+import org.eclipse.ui.console.MessageConsoleStream;
+
+/**
+ * Shows the output of a process started directly by {@link AbstractLauncher}, or of test cases run by
+ * {@link BuildAndRunJob} in a {@link WarmTestRunner}, in a console.
+ *
+ * One console is kept per name and is cleared before each run. The process piped to a console is kept until it
+ * terminates, so that it can be terminated when the launcher is run again or from the console through
+ * {@link ProcessConsolePageParticipant}.
+ */
+class ProcessConsole {
+
+	/** The type of the consoles, used to contribute to their pages. */
+	static final String CONSOLE_TYPE = "net.fornwall.eclipsecoder.processConsole";
+
+	/** The running processes by console name. */
+	private static final ConcurrentMap<String, Process> processes = new ConcurrentHashMap<String, Process>();
+
+	/**
+	 * Get the console with the given name, creating it if necessary, and clear and show it.
+	 */
+	static MessageConsole show(String name) {
+		IConsoleManager manager = ConsolePlugin.getDefault().getConsoleManager();
+		MessageConsole console = null;
+		for (IConsole existing : manager.getConsoles()) {
+			if (existing instanceof MessageConsole && existing.getName().equals(name)) {
+				console = (MessageConsole) existing;
+				break;
+			}
+		}
+		if (console == null) {
+			console = new MessageConsole(name, null);
+			console.setType(CONSOLE_TYPE);
+			manager.addConsoles(new IConsole[] { console });
+		}
+		console.clearConsole();
+		manager.showConsoleView(console);
+		return console;
+	}
+
+	/**
+	 * Copy the output of a started process to a console from a daemon thread, followed by its exit value.
+	 *
+	 * Lines holding test results in the format of {@link TestResult#toRecord()} are shown as described by the given
+	 * timing, and are summarized when the process has terminated.
+	 *
+	 * @param process
+	 *            A process started with its error stream redirected to its output stream.
+	 */
+	static void pipe(final Process process, final MessageConsole console, final TestTiming timing) {
+		processes.put(console.getName(), process);
+		Thread pipe = new Thread("EclipseCoder output of " + console.getName()) {
+			@Override
+			public void run() {
+				List<TestResult> results = new ArrayList<TestResult>();
+				try (MessageConsoleStream out = console.newMessageStream();
+						BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+					String line;
+					while ((line = in.readLine()) != null) {
+						TestResult result = TestResult.parseRecord(line);
+						if (result == null) {
+							out.println(line);
+						} else {
+							results.add(result);
+							out.println(timing.describe(result));
+						}
+					}
+					out.println();
+					if (!results.isEmpty()) {
+						out.println(summarize(results, timing));
+					}
+					out.println("<terminated, exit value: " + process.waitFor() + ">");
+				} catch (IOException e) {
+					// the console or process has gone away
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					processes.remove(console.getName(), process);
+				}
+			}
+		};
+		pipe.setDaemon(true);
+		pipe.start();
+	}
+
+	/**
+	 * Summarize the results of a run: how many test cases passed or were slow, and the time of the slowest. Test
+	 * cases ending with an error are not timed, so they are neither slow nor the slowest.
+	 */
+	static String summarize(List<TestResult> results, TestTiming timing) {
+		int passed = 0;
+		int slow = 0;
+		long maxElapsedNanos = 0;
+		for (TestResult result : results) {
+			if (result.isPassed()) {
+				passed++;
+			}
+			if (result.getOutcome() == TestResult.Outcome.ERROR) {
+				continue;
+			}
+			if (timing.isSlow(result)) {
+				slow++;
+			}
+			maxElapsedNanos = Math.max(maxElapsedNanos, result.getElapsedNanos());
+		}
+		return passed + " of " + results.size() + " test cases passed, " + slow + " slow, slowest took "
+				+ TimeUnit.NANOSECONDS.toMillis(maxElapsedNanos) + " ms";
+	}
+
+	/**
+	 * Destroy the process piped to the console with the given name, if it is still running.
+	 *
+	 * @return true if a process was destroyed
+	 */
+	static boolean terminate(String name) {
+		Process process = processes.remove(name);
+		if (process == null) {
+			return false;
+		}
+		process.destroy();
+		return true;
+	}
+
+	private ProcessConsole() {
+		// never called - only static methods used
+	}
+}
@@ -0,0 +1,50 @@
+package net.fornwall.eclipsecoder.util;
+
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.action.IToolBarManager;
+import org.eclipse.ui.ISharedImages;
+import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.console.IConsole;
+import org.eclipse.ui.console.IConsoleConstants;
+import org.eclipse.ui.console.IConsolePageParticipant;
+import org.eclipse.ui.part.IPageBookViewPage;
+
+/**
+ * Adds an action terminating the process to the pages of consoles shown by {@link ProcessConsole}.
+ *
+ * Registered in plugin.xml for consoles of type {@link ProcessConsole#CONSOLE_TYPE}.
+ */
+public class ProcessConsolePageParticipant implements IConsolePageParticipant {
+
+	public void activated() {
+		// nothing to do
+	}
+
+	public void deactivated() {
+		// nothing to do
+	}
+
+	public void dispose() {
+		// nothing to do
+	}
+
+	@SuppressWarnings("rawtypes")
+	public Object getAdapter(Class adapter) {
+		return null;
+	}
+
+	public void init(IPageBookViewPage page, final IConsole console) {
+		Action terminateAction = new Action("Terminate") {
+			@Override
+			public void run() {
+				ProcessConsole.terminate(console.getName());
+			}
+		};
+		terminateAction.setToolTipText("Terminate the process of this console");
+		terminateAction.setImageDescriptor(PlatformUI.getWorkbench().getSharedImages()
+				.getImageDescriptor(ISharedImages.IMG_ELCL_STOP));
+		IToolBarManager toolBar = page.getSite().getActionBars().getToolBarManager();
+		toolBar.appendToGroup(IConsoleConstants.LAUNCH_GROUP, terminateAction);
+	}
+
+}
@@ -2,9 +2,106 @@ package net.fornwall.eclipsecoder.util;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Reflective access to non-public members of the contest applet.
+ *
+ * Declared fields and methods are looked up and made accessible once per class and name, and cached in a
+ * {@link ClassValue}, as are lookups of fields which do not exist.
+ */
 public class ReflectUtil {
 
+	/**
+	 * An accessible declared method with its parameter types, which {@link Method#getParameterTypes()} copies.
+	 */
+	private static final class DeclaredMethod {
+		final Method method;
+
+		final Class<?>[] parameterTypes;
+
+		DeclaredMethod(Method method) {
+			this.method = method;
+			this.parameterTypes = method.getParameterTypes();
+		}
+
+		boolean hasParameterClasses(Object[] args) {
+			if (parameterTypes.length != args.length) {
+				return false;
+			}
+			for (int i = 0; i < args.length; i++) {
+				if (parameterTypes[i] != args[i].getClass()) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Per class map from member name to cached lookup results.
+	 */
+	private static final class MemberCache<V> extends ClassValue<ConcurrentMap<String, V>> {
+		@Override
+		protected ConcurrentMap<String, V> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<String, V>();
+		}
+	}
+
+	/** An accessible {@link Field} or a {@link NoSuchFieldException} per field name. */
+	private static final MemberCache<Object> FIELDS = new MemberCache<Object>();
+
+	/** The declared methods per method name. */
+	private static final MemberCache<DeclaredMethod[]> METHODS = new MemberCache<DeclaredMethod[]>();
+
+	private static Field getDeclaredField(Class<?> clazz, String name) throws NoSuchFieldException {
+		ConcurrentMap<String, Object> fields = FIELDS.get(clazz);
+		Object field = fields.get(name);
+		if (field == null) {
+			try {
+				Field declared = clazz.getDeclaredField(name);
+				declared.setAccessible(true);
+				field = declared;
+			} catch (NoSuchFieldException e) {
+				field = e;
+			}
+			fields.putIfAbsent(name, field);
+		}
+		if (field instanceof NoSuchFieldException) {
+			throw (NoSuchFieldException) field;
+		}
+		return (Field) field;
+	}
+
+	/**
+	 * Find the declared method whose parameter types are exactly the classes of the arguments, as
+	 * {@link Class#getDeclaredMethod(String, Class...)} does with those classes.
+	 */
+	private static Method getDeclaredMethod(Class<?> clazz, String name, Object[] args) throws NoSuchMethodException {
+		ConcurrentMap<String, DeclaredMethod[]> methods = METHODS.get(clazz);
+		DeclaredMethod[] candidates = methods.get(name);
+		if (candidates == null) {
+			List<DeclaredMethod> named = new ArrayList<DeclaredMethod>();
+			for (Method method : clazz.getDeclaredMethods()) {
+				if (method.getName().equals(name)) {
+					method.setAccessible(true);
+					named.add(new DeclaredMethod(method));
+				}
+			}
+			candidates = named.toArray(new DeclaredMethod[named.size()]);
+			methods.putIfAbsent(name, candidates);
+		}
+		for (DeclaredMethod candidate : candidates) {
+			if (candidate.hasParameterClasses(args)) {
+				return candidate.method;
+			}
+		}
+		throw new NoSuchMethodException(clazz.getName() + "." + name);
+	}
+
 	public static Object getField(Object instance, String name) {
 		return getInstanceField(instance, name, false);
 	}
@@ -15,9 +112,7 @@ public class ReflectUtil {
 			if (inSuper) {
 				clazz = clazz.getSuperclass();
 			}
-			Field field = clazz.getDeclaredField(name);
-			field.setAccessible(true);
-			return field.get(instance);
+			return getDeclaredField(clazz, name).get(instance);
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
@@ -25,13 +120,7 @@ public class ReflectUtil {
 
 	public static Object invokeInstanceMethod(Object instance, String name, Object... args) {
 		try {
-			Class<?>[] parameterTypes = new Class[args.length];
-			for (int i = 0; i < args.length; i++) {
-				parameterTypes[i] = args[i].getClass();
-			}
-			Method method = instance.getClass().getDeclaredMethod(name, parameterTypes);
-			method.setAccessible(true);
-			return method.invoke(instance, args);
+			return getDeclaredMethod(instance.getClass(), name, args).invoke(instance, args);
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
@@ -39,11 +128,9 @@ public class ReflectUtil {
 
 	public static void setInstanceField(Object instance, String name, Object value) {
 		try {
-			Field field = instance.getClass().getDeclaredField(name);
-			field.setAccessible(true);
-			field.set(instance, value);
+			getDeclaredField(instance.getClass(), name).set(instance, value);
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,244 @@
+package net.fornwall.eclipsecoder.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import net.fornwall.eclipsecoder.preferences.EclipseCoderPlugin;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+/**
+ * Compiles Java solutions in memory with the system Java compiler, so that test cases can be run through
+ * {@link WarmTestRunner} without a workspace build.
+ *
+ * Only the given source files are compiled, and the class files are kept in memory. The standard file manager, which
+ * holds the opened platform class files, is created once and shared between compilations. The classes compiled for a
+ * project are reused as long as the modification stamps of the sources and the class path are unchanged.
+ *
+ * Language plug-ins should fall back to {@link Utilities#buildAndRun(IProject, IFile, Runnable)} when
+ * {@link #isAvailable()} returns false, as when Eclipse runs on a JRE without a compiler.
+ */
+public class SolutionCompiler {
+
+	private static class CompiledClasses {
+		final Map<String, byte[]> classes;
+
+		final String key;
+
+		CompiledClasses(String key, Map<String, byte[]> classes) {
+			this.key = key;
+			this.classes = classes;
+		}
+	}
+
+	/**
+	 * A class file written by the compiler into a map.
+	 */
+	private static class MemoryClassFile extends SimpleJavaFileObject {
+		private final Map<String, byte[]> classes;
+
+		private final String className;
+
+		MemoryClassFile(String className, Map<String, byte[]> classes) {
+			super(URI.create("memory:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+			this.className = className;
+			this.classes = classes;
+		}
+
+		@Override
+		public OutputStream openOutputStream() {
+			return new ByteArrayOutputStream() {
+				@Override
+				public void close() {
+					classes.put(className, toByteArray());
+				}
+			};
+		}
+	}
+
+	/**
+	 * A source file whose contents have been read from the workspace.
+	 */
+	private static class MemorySourceFile extends SimpleJavaFileObject {
+		private final String contents;
+
+		MemorySourceFile(String className, String contents) {
+			super(URI.create("memory:///" + className + Kind.SOURCE.extension), Kind.SOURCE);
+			this.contents = contents;
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return contents;
+		}
+	}
+
+	private static final List<String> COMPILER_OPTIONS = Arrays.asList("-g", "-nowarn", "-proc:none");
+
+	private static final ConcurrentMap<IProject, CompiledClasses> compiled = new ConcurrentHashMap<IProject, CompiledClasses>();
+
+	private static StandardJavaFileManager fileManager;
+
+	/**
+	 * Compile source files in memory, or return the classes compiled earlier for the same project if neither the
+	 * sources nor the class path have changed since. A class path entry is considered changed when its path or last
+	 * modification time changes, which for a directory is only when files are added to or removed from it directly.
+	 *
+	 * @param project
+	 *            The project the sources belong to.
+	 * @param sources
+	 *            The Java source files to compile, such as the solution and the generated test source, in the default
+	 *            package.
+	 * @param classPath
+	 *            Additional class path entries needed by the sources, or an empty list.
+	 * @return the compiled classes as a map from binary class name to class file contents
+	 * @throws CoreException
+	 *             if the sources cannot be read or do not compile, with the compiler errors in the status message
+	 */
+	public static Map<String, byte[]> compile(IProject project, List<IFile> sources, List<File> classPath)
+			throws CoreException {
+		StringBuilder keyBuilder = new StringBuilder();
+		for (IFile source : sources) {
+			keyBuilder.append(source.getFullPath()).append('@').append(source.getModificationStamp()).append(';');
+		}
+		for (File entry : classPath) {
+			keyBuilder.append(entry.getAbsolutePath()).append('@').append(entry.lastModified()).append(';');
+		}
+		String key = keyBuilder.toString();
+
+		CompiledClasses previous = compiled.get(project);
+		if (previous != null && previous.key.equals(key)) {
+			return previous.classes;
+		}
+
+		List<JavaFileObject> compilationUnits = new ArrayList<JavaFileObject>();
+		try {
+			for (IFile source : sources) {
+				String className = source.getFullPath().removeFileExtension().lastSegment();
+				compilationUnits.add(new MemorySourceFile(className, Utilities.getFileContents(source)));
+			}
+		} catch (IOException e) {
+			throw new CoreException(new Status(IStatus.ERROR, EclipseCoderPlugin.PLUGIN_ID, IStatus.OK, e.getMessage(),
+					e));
+		}
+
+		Map<String, byte[]> classes = compile(compilationUnits, classPath);
+		compiled.put(project, new CompiledClasses(key, classes));
+		return classes;
+	}
+
+	private static synchronized Map<String, byte[]> compile(List<JavaFileObject> compilationUnits, List<File> classPath)
+			throws CoreException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null) {
+			throw new CoreException(new Status(IStatus.ERROR, EclipseCoderPlugin.PLUGIN_ID, IStatus.OK,
+					"No Java compiler available in " + System.getProperty("java.home"), null));
+		}
+		if (fileManager == null) {
+			fileManager = compiler.getStandardFileManager(null, Locale.getDefault(), null);
+		}
+
+		final Map<String, byte[]> classes = new HashMap<String, byte[]>();
+		JavaFileManager memoryFileManager = new ForwardingJavaFileManager<StandardJavaFileManager>(fileManager) {
+			@Override
+			public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+					FileObject sibling) {
+				return new MemoryClassFile(className, classes);
+			}
+		};
+
+		List<String> options = new ArrayList<String>(COMPILER_OPTIONS);
+		if (!classPath.isEmpty()) {
+			StringBuilder path = new StringBuilder();
+			for (File entry : classPath) {
+				if (path.length() != 0) {
+					path.append(File.pathSeparatorChar);
+				}
+				path.append(entry.getAbsolutePath());
+			}
+			options.add("-classpath");
+			options.add(path.toString());
+		}
+
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+		boolean success = compiler.getTask(null, memoryFileManager, diagnostics, options, null, compilationUnits)
+				.call();
+		if (!success) {
+			StringBuilder message = new StringBuilder();
+			for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+				if (diagnostic.getKind() != Diagnostic.Kind.ERROR) {
+					continue;
+				}
+				if (diagnostic.getSource() != null) {
+					// the name of a source file object is the path of its uri, such as "/Solution.java"
+					message.append(diagnostic.getSource().getName().substring(1)).append(':');
+					message.append(diagnostic.getLineNumber()).append(": ");
+				}
+				message.append(diagnostic.getMessage(null)).append('\n');
+			}
+			throw new CoreException(new Status(IStatus.ERROR, EclipseCoderPlugin.PLUGIN_ID, IStatus.OK, message
+					.toString().trim(), null));
+		}
+		return Collections.unmodifiableMap(classes);
+	}
+
+	/**
+	 * Close the shared file manager and forget all compiled classes. Called when the plug-in is stopped.
+	 */
+	public static synchronized void dispose() {
+		compiled.clear();
+		if (fileManager != null) {
+			try {
+				fileManager.close();
+			} catch (IOException e) {
+				// nothing more to do
+			}
+			fileManager = null;
+		}
+	}
+
+	/**
+	 * Forget the classes compiled for a project.
+	 */
+	public static void forget(IProject project) {
+		compiled.remove(project);
+	}
+
+	/**
+	 * @return true if a system Java compiler is available to compile solutions in memory
+	 */
+	public static boolean isAvailable() {
+		return ToolProvider.getSystemJavaCompiler() != null;
+	}
+
+	private SolutionCompiler() {
+		// never called - only static methods used
+	}
+}
@@ -5,10 +5,19 @@ import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.io.PrintStream;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -16,14 +25,12 @@ import net.fornwall.eclipsecoder.preferences.EclipseCoderPlugin;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
-import org.eclipse.core.resources.IncrementalProjectBuilder;
-import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Status;
-import org.eclipse.core.runtime.jobs.IJobManager;
-import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.dialogs.ErrorDialog;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.swt.widgets.Display;
@@ -38,6 +45,14 @@ import org.eclipse.ui.PlatformUI;
  */
 public class Utilities {
 
+	/** The decoder last used by each thread, reused while the charset stays the same. */
+	private static final ThreadLocal<CharsetDecoder> DECODER = new ThreadLocal<CharsetDecoder>();
+
+	private static final int MAX_CACHED_PATTERNS = 64;
+
+	/** Compiled case insensitive patterns by regular expression. */
+	private static final ConcurrentMap<String, Pattern> PATTERNS = new ConcurrentHashMap<String, Pattern>();
+
 	private static class OkCancelDialogRunnable implements Runnable {
 		private String message;
 
@@ -73,6 +88,16 @@ public class Utilities {
 		}
 	}
 
+	private static String decode(ByteBuffer bytes, Charset charset) throws CharacterCodingException {
+		CharsetDecoder decoder = DECODER.get();
+		if (decoder == null || !decoder.charset().equals(charset)) {
+			decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			DECODER.set(decoder);
+		}
+		return decoder.decode(bytes).toString();
+	}
+
 	public static byte[] getBytes(String s) {
 		try {
 			return s.getBytes("utf-8");
@@ -82,26 +107,81 @@ public class Utilities {
 		}
 	}
 
+	/**
+	 * Get the contents of a file decoded with its charset. The contents are returned exactly as stored, including the
+	 * line terminators. Files in the local file system are read through a file channel into a heap buffer, as a memory
+	 * mapping would keep the file locked on Windows until the mapping is garbage collected.
+	 */
 	public static String getFileContents(IFile file) throws CoreException, IOException {
-		String lineSeparator = System.getProperty("line.separator");
-		BufferedReader reader = new BufferedReader(new InputStreamReader(file.getContents(), file.getCharset(true)));
-		try {
-			StringBuilder stringBuilder = new StringBuilder();
-			String line;
-			while ((line = reader.readLine()) != null) {
-				stringBuilder.append(line).append(lineSeparator);
+		Charset charset = Charset.forName(file.getCharset(true));
+		IPath location = file.getLocation();
+		if (location != null && file.isSynchronized(IResource.DEPTH_ZERO)) {
+			try (FileChannel channel = FileChannel.open(location.toFile().toPath(), StandardOpenOption.READ)) {
+				long size = channel.size();
+				if (size > Integer.MAX_VALUE) {
+					throw new IOException("File too large: " + location.toOSString());
+				}
+				ByteBuffer bytes = ByteBuffer.allocate((int) size);
+				while (bytes.hasRemaining() && channel.read(bytes) != -1) {
+					// keep reading until the buffer is full
+				}
+				bytes.flip();
+				return decode(bytes, charset);
 			}
-			return stringBuilder.toString();
-		} finally {
-			reader.close();
+		}
+
+		try (InputStream in = file.getContents()) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+			return decode(ByteBuffer.wrap(out.toByteArray()), charset);
 		}
 	}
 
+	/**
+	 * Find the first match of a case insensitive regular expression in a text.
+	 * 
+	 * @return the given group of the first match, or null if there is no match
+	 */
 	public static String getMatch(String text, String regExp, int group) {
-		Matcher matcher = Pattern.compile(regExp, Pattern.CASE_INSENSITIVE).matcher(text);
+		Matcher matcher = getPattern(regExp).matcher(text);
 		return matcher.find() ? matcher.group(group) : null;
 	}
 
+	/**
+	 * Find the first match of a case insensitive regular expression in a text and extract several of its groups, so
+	 * that values such as both class and method name can be found with one pass over the text.
+	 * 
+	 * @return the given groups of the first match, or null if there is no match
+	 */
+	public static String[] getMatches(String text, String regExp, int... groups) {
+		Matcher matcher = getPattern(regExp).matcher(text);
+		if (!matcher.find()) {
+			return null;
+		}
+		String[] result = new String[groups.length];
+		for (int i = 0; i < groups.length; i++) {
+			result[i] = matcher.group(groups[i]);
+		}
+		return result;
+	}
+
+	private static Pattern getPattern(String regExp) {
+		Pattern pattern = PATTERNS.get(regExp);
+		if (pattern == null) {
+			if (PATTERNS.size() >= MAX_CACHED_PATTERNS) {
+				// the expressions used are few and fixed, so just start over if something floods the cache
+				PATTERNS.clear();
+			}
+			pattern = Pattern.compile(regExp, Pattern.CASE_INSENSITIVE);
+			PATTERNS.put(regExp, pattern);
+		}
+		return pattern;
+	}
+
 	public static String getStackTrace(Exception e) {
 		ByteArrayOutputStream byteArray = new ByteArrayOutputStream();
 		e.printStackTrace(new PrintStream(byteArray, true));
@@ -254,38 +334,30 @@ public class Utilities {
 	/**
 	 * Build a project and launch a Runnable afterwards.
 	 * 
-	 * See http://www.eclipse.org/articles/Article-Builders/builders.html
-	 * 
 	 * @param projectToBuild
 	 *            the project to build before launching
 	 * @param runAfterBuild
 	 *            the Runnable to launch after the build on the projectToBuild has been completed
+	 * @see BuildAndRunJob
 	 */
 	public static void buildAndRun(final IProject projectToBuild, final Runnable runAfterBuild) {
-		(new Thread() {
-
-			@Override
-			public void run() {
-				try {
-					IJobManager manager = Job.getJobManager();
-					if (projectToBuild.getWorkspace().isAutoBuilding()) {
-						projectToBuild.build(IncrementalProjectBuilder.CLEAN_BUILD, NULL_MONITOR);
-
-						manager.wakeUp(ResourcesPlugin.FAMILY_AUTO_BUILD);
-						manager.join(ResourcesPlugin.FAMILY_AUTO_BUILD, NULL_MONITOR);
-					} else {
-						projectToBuild.build(IncrementalProjectBuilder.FULL_BUILD, NULL_MONITOR);
-
-						manager.wakeUp(ResourcesPlugin.FAMILY_MANUAL_BUILD);
-						manager.join(ResourcesPlugin.FAMILY_MANUAL_BUILD, NULL_MONITOR);
-					}
-					runAfterBuild.run();
-				} catch (Exception e) {
-					Utilities.showException(e);
-				}
-
-			}
+		buildAndRun(projectToBuild, null, runAfterBuild);
+	}
 
-		}).start();
+	/**
+	 * Build a project unless the solution file is unchanged since the last successful build, and launch a Runnable
+	 * afterwards. An earlier request for the same project which has not completed is cancelled. A Java solution file
+	 * may instead have its test cases run in memory, as described in {@link BuildAndRunJob}.
+	 * 
+	 * @param projectToBuild
+	 *            the project to build before launching
+	 * @param solutionFile
+	 *            the file whose modification triggers a build, or null to always build
+	 * @param runAfterBuild
+	 *            the Runnable to launch after the build on the projectToBuild has been completed
+	 * @see BuildAndRunJob
+	 */
+	public static void buildAndRun(IProject projectToBuild, IFile solutionFile, Runnable runAfterBuild) {
+		BuildAndRunJob.scheduleBuildAndRun(projectToBuild, solutionFile, runAfterBuild);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,584 @@
+package net.fornwall.eclipsecoder.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.fornwall.eclipsecoder.preferences.EclipseCoderPlugin;
+import net.fornwall.eclipsecoder.stats.ProblemStatement;
+import net.fornwall.eclipsecoder.stats.ProblemStatementFormat;
+import net.fornwall.eclipsecoder.stats.SolutionTestRunner;
+import net.fornwall.eclipsecoder.stats.TestResult;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.FileLocator;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * Test runner processes kept alive per project, so that running the test cases of a problem does not pay for starting
+ * and warming up a new JVM each time.
+ *
+ * Each process runs {@link SolutionTestRunner} and is started on first use. A run sends the problem statement and the
+ * compiled solution to each process over a loopback socket, where the solution is loaded in a new class loader, so the
+ * processes survive recompilation. The test cases are then handed out one at a time to the processes, whose number is
+ * given by {@link EclipseCoderPlugin#testWorkers()}. A process not finishing a test case within
+ * {@link EclipseCoderPlugin#testTimeoutMillis()} per warm-up and timed run, plus a fixed allowance when it has just
+ * loaded the solution, is killed and replaced, failing only that test case, and so is a process whose connection
+ * breaks, as when the solution exits the JVM. The results are passed to a {@link Listener} in
+ * test case order as soon as all earlier test cases have finished.
+ *
+ * The processes are disposed when their project is closed or deleted and when the plug-in is stopped.
+ * {@link BuildAndRunJob} uses this for Java solutions compiled in memory by {@link SolutionCompiler} when
+ * {@link EclipseCoderPlugin#warmTestRunner()} is enabled.
+ */
+public class WarmTestRunner {
+
+	/**
+	 * Receives the results and output of a test run.
+	 */
+	public interface Listener {
+		/**
+		 * Called with a line written by the solution to standard output or standard error. Called from threads reading
+		 * the output of the processes, so lines from test cases running in parallel may be interleaved.
+		 */
+		void output(String line);
+
+		/**
+		 * Called for each test case in order as soon as it and all earlier test cases have finished. Called from the
+		 * threads running the tests, but never concurrently.
+		 */
+		void testFinished(TestResult result);
+	}
+
+	/**
+	 * A started test runner process and its connection.
+	 */
+	private static class Connection {
+		final DataInputStream in;
+
+		final DataOutputStream out;
+
+		final Process process;
+
+		final Socket socket;
+
+		/** The run whose solution is loaded, or null. Only used by the thread running test cases. */
+		Run loaded;
+
+		/** Set while the solution sent with the last load request has not yet been used by a test case. */
+		boolean loadPending;
+
+		Connection(Process process, Socket socket) throws IOException {
+			this.process = process;
+			this.socket = socket;
+			in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		}
+
+		/**
+		 * Close the connection and destroy the process. A thread blocked on the connection fails with an exception.
+		 */
+		void close() {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// nothing more to do
+			}
+			process.destroy();
+		}
+	}
+
+	/**
+	 * The state of a single run shared by the threads driving the workers.
+	 */
+	private static class Run {
+		volatile boolean cancelled;
+
+		/** The body of the request loading the solution. */
+		final byte[] loadRequest;
+
+		final Listener listener;
+
+		final AtomicInteger nextTestCase = new AtomicInteger();
+
+		int nextToReport;
+
+		final TestResult[] results;
+
+		/** The time limit of a test case including its warm-up runs, but not the loading of the solution. */
+		final int timeoutMillis;
+
+		Run(byte[] loadRequest, int testCaseCount, int timeoutMillis, Listener listener) {
+			this.loadRequest = loadRequest;
+			this.results = new TestResult[testCaseCount];
+			this.timeoutMillis = timeoutMillis;
+			this.listener = listener;
+		}
+
+		/**
+		 * Stop the workers from starting processes and taking test cases.
+		 */
+		void cancel() {
+			cancelled = true;
+			nextTestCase.set(results.length);
+		}
+
+		/**
+		 * Record a result and report it together with any later results which are now next in order.
+		 */
+		synchronized void finished(TestResult result) {
+			results[result.getIndex()] = result;
+			while (nextToReport < results.length && results[nextToReport] != null) {
+				if (listener != null) {
+					listener.testFinished(results[nextToReport]);
+				}
+				nextToReport++;
+			}
+		}
+	}
+
+	/**
+	 * A slot for a test runner process. The process is started by the thread running test cases on it, but may be
+	 * disposed from any thread.
+	 */
+	private class Worker {
+		private Connection connection;
+
+		/**
+		 * Destroy the process, if any. A thread running a test case on it fails on the connection.
+		 */
+		void dispose() {
+			Connection disposed;
+			synchronized (this) {
+				disposed = connection;
+				connection = null;
+			}
+			if (disposed != null) {
+				try {
+					disposed.out.writeByte(SolutionTestRunner.COMMAND_EXIT);
+					disposed.out.flush();
+				} catch (IOException e) {
+					// the process is destroyed below
+				}
+				disposed.close();
+			}
+		}
+
+		/**
+		 * Start the process unless running, and load the solution of a run unless already loaded.
+		 *
+		 * @return the connection to the process
+		 * @throws IOException
+		 *             if the process cannot be started, or if the run has been cancelled or the runner disposed
+		 */
+		Connection prepare(Run run) throws IOException {
+			Connection current;
+			synchronized (this) {
+				current = connection;
+			}
+			if (current != null && !isAlive(current.process)) {
+				dispose();
+				current = null;
+			}
+			if (current == null) {
+				Connection started = start();
+				synchronized (this) {
+					if (run.cancelled || disposed) {
+						// the runner was disposed while starting, so nobody else will destroy the process
+						started.close();
+						throw new InterruptedIOException("Test run for " + project.getName() + " cancelled");
+					}
+					connection = current = started;
+				}
+			}
+			if (current.loaded != run) {
+				current.out.writeByte(SolutionTestRunner.COMMAND_LOAD);
+				current.out.write(run.loadRequest);
+				current.out.flush();
+				current.loaded = run;
+				current.loadPending = true;
+			}
+			return current;
+		}
+
+		private Connection start() throws IOException {
+			File javaExecutable = new File(new File(System.getProperty("java.home"), "bin"), "java");
+			try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getByName(null))) {
+				server.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+				ProcessBuilder builder = new ProcessBuilder(javaExecutable.getPath(), "-cp", getRunnerClassPath(),
+						SolutionTestRunner.class.getName(), Integer.toString(server.getLocalPort()));
+				builder.redirectErrorStream(true);
+				if (project.getLocation() != null) {
+					builder.directory(project.getLocation().toFile());
+				}
+				Process process = builder.start();
+				startOutputReader(process);
+				try {
+					Socket socket = server.accept();
+					socket.setTcpNoDelay(true);
+					return new Connection(process, socket);
+				} catch (IOException e) {
+					process.destroy();
+					throw new IOException("Test runner for " + project.getName() + " did not connect", e);
+				}
+			}
+		}
+
+		/**
+		 * Run test cases of a run until there are no more, replacing the process after a test case fails it.
+		 */
+		void runTests(Run run) throws IOException {
+			int index;
+			while ((index = run.nextTestCase.getAndIncrement()) < run.results.length) {
+				Connection current = prepare(run);
+				TestResult result;
+				long start = System.nanoTime();
+				// the solution is loaded by the process before it runs the test case
+				int timeoutMillis = current.loadPending ? run.timeoutMillis + LOAD_TIMEOUT_MILLIS : run.timeoutMillis;
+				try {
+					current.socket.setSoTimeout(timeoutMillis);
+					current.out.writeByte(SolutionTestRunner.COMMAND_TEST);
+					current.out.writeInt(index);
+					current.out.flush();
+					result = TestResult.read(current.in);
+					current.loadPending = false;
+				} catch (SocketTimeoutException e) {
+					dispose();
+					result = new TestResult(index, TestResult.Outcome.ERROR, System.nanoTime() - start, null,
+							"Timed out after " + timeoutMillis + " ms, test runner restarted");
+				} catch (IOException e) {
+					dispose();
+					if (run.cancelled || disposed) {
+						throw new InterruptedIOException("Test run for " + project.getName() + " cancelled");
+					}
+					result = new TestResult(index, TestResult.Outcome.ERROR, System.nanoTime() - start, null,
+							"Test runner exited: " + e);
+				}
+				run.finished(result);
+			}
+		}
+	}
+
+	/** How often a run checks whether its progress monitor has been cancelled. */
+	private static final int CANCEL_POLL_MILLIS = 100;
+
+	private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+
+	/** The time allowed for loading the solution in addition to the time limit of the first test case using it. */
+	private static final int LOAD_TIMEOUT_MILLIS = 10000;
+
+	private static final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "EclipseCoder test runner worker");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	private static final IResourceChangeListener projectListener = new IResourceChangeListener() {
+		public void resourceChanged(IResourceChangeEvent event) {
+			IResource resource = event.getResource();
+			if (resource instanceof IProject) {
+				dispose((IProject) resource);
+			}
+		}
+	};
+
+	private static final ConcurrentMap<IProject, WarmTestRunner> runners = new ConcurrentHashMap<IProject, WarmTestRunner>();
+
+	/**
+	 * Start disposing the runners of projects which are closed or deleted. Called when the plug-in is started.
+	 */
+	public static void addResourceChangeListener() {
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(projectListener,
+				IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.PRE_DELETE);
+	}
+
+	/**
+	 * Dispose the runner of a project, if any, and forget the classes compiled for it in memory.
+	 */
+	public static void dispose(IProject project) {
+		SolutionCompiler.forget(project);
+		WarmTestRunner runner = runners.remove(project);
+		if (runner != null) {
+			runner.dispose();
+		}
+	}
+
+	/**
+	 * Get the runner of a project, creating it if necessary. The processes are not started until the first run.
+	 */
+	public static WarmTestRunner getRunner(IProject project) {
+		WarmTestRunner runner = runners.get(project);
+		if (runner == null) {
+			WarmTestRunner existing = runners.putIfAbsent(project, runner = new WarmTestRunner(project));
+			if (existing != null) {
+				runner = existing;
+			}
+		}
+		return runner;
+	}
+
+	/**
+	 * Stop listening for closed projects and dispose all runners and the in-memory compiler. Called when the plug-in
+	 * is stopped.
+	 */
+	public static void removeResourceChangeListener() {
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(projectListener);
+		for (IProject project : runners.keySet()) {
+			dispose(project);
+		}
+		SolutionCompiler.dispose();
+	}
+
+	/**
+	 * Get the class path of the runner process, which is this plug-in as the runner only uses classes from the
+	 * <code>stats</code> package and the Java class library.
+	 */
+	private static String getRunnerClassPath() throws IOException {
+		File bundleFile = FileLocator.getBundleFile(EclipseCoderPlugin.getDefault().getBundle());
+		File outputFolder = new File(bundleFile, "bin");
+		if (bundleFile.isDirectory() && outputFolder.isDirectory()) {
+			// running from a workspace during development
+			return outputFolder.getPath();
+		}
+		return bundleFile.getPath();
+	}
+
+	private static boolean isAlive(Process process) {
+		try {
+			process.exitValue();
+			return false;
+		} catch (IllegalThreadStateException e) {
+			return true;
+		}
+	}
+
+	/** Set when the runner has been disposed, after which runs fail without starting processes. */
+	private volatile boolean disposed;
+
+	private volatile Listener outputListener;
+
+	private final IProject project;
+
+	/** The workers, changed only by the thread holding the run lock but disposed from any thread. */
+	private final List<Worker> workers = new CopyOnWriteArrayList<Worker>();
+
+	private WarmTestRunner(IProject project) {
+		this.project = project;
+	}
+
+	/**
+	 * Destroy the processes of the runner without waiting for a run in progress, which then fails.
+	 */
+	private void dispose() {
+		disposed = true;
+		disposeWorkers();
+	}
+
+	private void disposeWorkers() {
+		for (Worker worker : workers) {
+			worker.dispose();
+		}
+	}
+
+	/**
+	 * Run the test cases of a problem statement against a solution compiled to a class path.
+	 *
+	 * @see #runTests(ProblemStatement, List, Map, Listener, IProgressMonitor)
+	 */
+	public List<TestResult> runTests(ProblemStatement statement, List<File> classPath, Listener listener,
+			IProgressMonitor monitor) throws IOException {
+		return runTests(statement, classPath, Collections.<String, byte[]> emptyMap(), listener, monitor);
+	}
+
+	/**
+	 * Run the test cases of a problem statement against a compiled solution, starting the runner processes if needed.
+	 *
+	 * @param statement
+	 *            The problem statement whose test cases and solution class and method are used.
+	 * @param classPath
+	 *            The directories or jars containing the compiled solution class, or an empty list.
+	 * @param classes
+	 *            Class files compiled in memory, such as by {@link SolutionCompiler}, by binary class name. These are
+	 *            loaded before the class path is searched.
+	 * @param listener
+	 *            Receives the results as they become available, or null.
+	 * @param monitor
+	 *            Polled for cancellation while the test cases run, or null.
+	 * @return the results of all test cases in order
+	 * @throws IOException
+	 *             if a runner process cannot be started
+	 * @throws InterruptedIOException
+	 *             if the calling thread is interrupted or the runner is disposed during the run, in which case the
+	 *             processes of the runner have been destroyed when this returns
+	 * @throws OperationCanceledException
+	 *             if the monitor is cancelled during the run, in which case the processes of the runner have been
+	 *             destroyed when this returns
+	 */
+	public synchronized List<TestResult> runTests(ProblemStatement statement, List<File> classPath,
+			Map<String, byte[]> classes, Listener listener, IProgressMonitor monitor) throws IOException {
+		ByteArrayOutputStream loadRequest = new ByteArrayOutputStream();
+		DataOutputStream request = new DataOutputStream(loadRequest);
+		byte[] statementBytes = ProblemStatementFormat.toBytes(statement);
+		request.writeInt(statementBytes.length);
+		request.write(statementBytes);
+		request.writeInt(classPath.size());
+		for (File entry : classPath) {
+			request.writeUTF(entry.getAbsolutePath());
+		}
+		request.writeInt(classes.size());
+		for (Map.Entry<String, byte[]> classFile : classes.entrySet()) {
+			request.writeUTF(classFile.getKey());
+			request.writeInt(classFile.getValue().length);
+			request.write(classFile.getValue());
+		}
+		int warmUpRuns = EclipseCoderPlugin.testTiming().getWarmUpRuns();
+		request.writeInt(warmUpRuns);
+
+		int testCaseCount = statement.getTestCases().size();
+		// each warm-up run may take as long as the timed run
+		long timeoutMillis = Math.min(Integer.MAX_VALUE - LOAD_TIMEOUT_MILLIS,
+				EclipseCoderPlugin.testTimeoutMillis() * (warmUpRuns + 1L));
+		final Run run = new Run(loadRequest.toByteArray(), testCaseCount, (int) timeoutMillis, listener);
+		int workerCount = Math.max(1, Math.min(EclipseCoderPlugin.testWorkers(), testCaseCount));
+		while (workers.size() > workerCount) {
+			workers.remove(workers.size() - 1).dispose();
+		}
+		while (workers.size() < workerCount) {
+			workers.add(new Worker());
+		}
+
+		outputListener = listener;
+		List<Future<?>> pending = new ArrayList<Future<?>>();
+		try {
+			if (disposed) {
+				throw new InterruptedIOException("Test runner for " + project.getName() + " disposed");
+			}
+			for (final Worker worker : workers) {
+				pending.add(executor.submit(new Callable<Void>() {
+					public Void call() throws IOException {
+						worker.runTests(run);
+						return null;
+					}
+				}));
+			}
+			IOException failure = null;
+			for (Future<?> future : pending) {
+				while (true) {
+					try {
+						future.get(CANCEL_POLL_MILLIS, TimeUnit.MILLISECONDS);
+						break;
+					} catch (TimeoutException e) {
+						if (monitor != null && monitor.isCanceled()) {
+							stop(run, pending);
+							throw new OperationCanceledException();
+						}
+					} catch (ExecutionException e) {
+						if (failure == null) {
+							failure = (e.getCause() instanceof IOException) ? (IOException) e.getCause()
+									: new IOException(e.getCause());
+							// stop the other workers on their next test case
+							run.cancel();
+						}
+						break;
+					}
+				}
+			}
+			if (failure != null) {
+				disposeWorkers();
+				throw failure;
+			}
+			return Arrays.asList(run.results);
+		} catch (InterruptedException e) {
+			stop(run, pending);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} finally {
+			outputListener = null;
+		}
+	}
+
+	/**
+	 * Cancel a run and wait for its workers to stop, destroying the processes they are waiting on.
+	 */
+	private void stop(Run run, List<Future<?>> pending) {
+		run.cancel();
+		// unblock workers waiting on their processes, which cannot start new ones once the run is cancelled
+		disposeWorkers();
+		awaitUninterruptibly(pending);
+		disposeWorkers();
+	}
+
+	/**
+	 * Wait for the workers of a cancelled run to stop, ignoring their outcome.
+	 */
+	private static void awaitUninterruptibly(List<Future<?>> futures) {
+		for (Future<?> future : futures) {
+			while (true) {
+				try {
+					future.get();
+					break;
+				} catch (InterruptedException e) {
+					// the caller restores the interrupt status
+				} catch (ExecutionException e) {
+					break;
+				}
+			}
+		}
+	}
+
+	private void startOutputReader(final Process runnerProcess) {
+		Thread reader = new Thread("EclipseCoder test runner output for " + project.getName()) {
+			@Override
+			public void run() {
+				try (BufferedReader lines = new BufferedReader(new InputStreamReader(runnerProcess.getInputStream()))) {
+					String line;
+					while ((line = lines.readLine()) != null) {
+						Listener listener = outputListener;
+						if (listener != null) {
+							listener.output(line);
+						}
+					}
+				} catch (IOException e) {
+					// the process has been destroyed
+				}
+			}
+		};
+		reader.setDaemon(true);
+		reader.start();
+	}
+}
@@ -1,5 +1,8 @@
 package net.fornwall.eclipsecoder.views;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import net.fornwall.eclipsecoder.actions.CreateNewProjectAction;
 import net.fornwall.eclipsecoder.actions.StartTopCoderAppletAction;
 import net.fornwall.eclipsecoder.preferences.EclipseCoderPlugin;
@@ -18,6 +21,7 @@ import org.eclipse.jface.action.Separator;
 import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.browser.Browser;
+import org.eclipse.swt.custom.StackLayout;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.ui.IActionBars;
 import org.eclipse.ui.IEditorInput;
@@ -54,10 +58,54 @@ public class ProblemStatementView extends ViewPart {
 
 	public static final String VIEW_ID = ProblemStatementView.class.getCanonicalName();
 
+	/**
+	 * A browser showing the problem statement of a project.
+	 */
+	private static class RenderedStatement {
+		final Browser browser;
+
+		final String contestName;
+
+		final long htmlStamp;
+
+		RenderedStatement(Browser browser, String contestName, long htmlStamp) {
+			this.browser = browser;
+			this.contestName = contestName;
+			this.htmlStamp = htmlStamp;
+		}
+	}
+
+	/** The number of problem statements kept rendered in browsers. */
+	private static final int MAX_RENDERED_STATEMENTS = 4;
+
 	Browser browser;
 
+	private Composite browserStack;
+
+	private final StackLayout browserStackLayout = new StackLayout();
+
 	private IProject lastProject;
 
+	/**
+	 * Browsers for the most recently shown problem statements in access order, so that switching between projects
+	 * brings the already rendered statement to the top instead of loading it again.
+	 */
+	private final Map<IProject, RenderedStatement> renderedStatements = new LinkedHashMap<IProject, RenderedStatement>(
+			MAX_RENDERED_STATEMENTS * 2, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<IProject, RenderedStatement> eldest) {
+			if (size() > MAX_RENDERED_STATEMENTS) {
+				if (browserStackLayout.topControl == eldest.getValue().browser) {
+					// can only happen when adding a new entry, which is made the top control afterwards
+					browserStackLayout.topControl = browser;
+				}
+				eldest.getValue().browser.dispose();
+				return true;
+			}
+			return false;
+		}
+	};
+
 	ISelectionListener pageSelectionListener = new ISelectionListener() {
 		public void selectionChanged(IWorkbenchPart part, ISelection selection) {
 			updateContent();
@@ -72,8 +120,11 @@ public class ProblemStatementView extends ViewPart {
 
 	@Override
 	public void createPartControl(Composite parent) {
-		browser = new Browser(parent, SWT.NONE);
+		browserStack = new Composite(parent, SWT.NONE);
+		browserStack.setLayout(browserStackLayout);
+		browser = new Browser(browserStack, SWT.NONE);
 		browser.setText(INITIAL_HTML);
+		showBrowser(browser);
 		updateContent();
 		contributeToActionBars();
 		hookPageSelection();
@@ -99,7 +150,34 @@ public class ProblemStatementView extends ViewPart {
 
 	@Override
 	public void setFocus() {
-		browser.setFocus();
+		browserStackLayout.topControl.setFocus();
+	}
+
+	private void showBrowser(Browser browserToShow) {
+		if (browserStackLayout.topControl != browserToShow) {
+			browserStackLayout.topControl = browserToShow;
+			browserStack.layout();
+		}
+	}
+
+	/**
+	 * Show the problem statement of a project, reusing the browser which has last rendered it if the HTML file has not
+	 * been changed since.
+	 */
+	private void showStatement(IProject project, String location) {
+		IFile htmlFile = project.getFile(Path.fromPortableString(location));
+		long htmlStamp = htmlFile.getModificationStamp();
+		RenderedStatement rendered = renderedStatements.get(project);
+		if (rendered == null || rendered.htmlStamp != htmlStamp) {
+			ProblemStatement statement = EclipseCoderPlugin.getProblemStatement(project);
+			String contestName = (statement == null) ? null : statement.getContestName();
+			Browser statementBrowser = (rendered == null) ? new Browser(browserStack, SWT.NONE) : rendered.browser;
+			statementBrowser.setUrl(project.getLocation().append(Path.fromPortableString(location)).toOSString());
+			rendered = new RenderedStatement(statementBrowser, contestName, htmlStamp);
+			renderedStatements.put(project, rendered);
+		}
+		setContentDescription((rendered.contestName == null) ? "" : rendered.contestName);
+		showBrowser(rendered.browser);
 	}
 
 	private CreateNewProjectAction createNewProjectAction = new CreateNewProjectAction();
@@ -112,8 +190,8 @@ public class ProblemStatementView extends ViewPart {
 	void updateContent() {
 		IEditorPart activeEditor = getSite().getPage().getActiveEditor();
 		if (activeEditor == null) {
-			if (browser.getUrl().length() == 0) {
-				browser.setText(INITIAL_HTML);
+			if (browserStackLayout.topControl == browser) {
+				// the welcome text is shown
 				createNewProjectAction.setCurrentProject(null);
 			}
 			return;
@@ -133,22 +211,10 @@ public class ProblemStatementView extends ViewPart {
 					String location = prefs.get(ProblemStatementView.PROBLEM_HTML_PATH_PREFS_KEY, null);
 
 					if (location == null) {
-						browser.setText(INITIAL_HTML);
+						showBrowser(browser);
 						setContentDescription("");
 					} else {
-						ProblemStatement statement = EclipseCoderPlugin.getProblemStatement(project);
-						if (statement != null && statement.getContestName() != null) {
-							setContentDescription(statement.getContestName());
-						} else {
-							setContentDescription("");
-						}
-
-						final String url = project.getLocation().append(Path.fromPortableString(location)).toOSString();
-						Utilities.runInDisplayThread(new Runnable() {
-							public void run() {
-								browser.setUrl(url);
-							}
-						});
+						showStatement(project, location);
 					}
 				} catch (Exception e) {
 					Utilities.showException(e);